@@ -0,0 +1,93 @@
+package com.smallworld.benchmarks;
+
+import com.smallworld.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link FetcherBenchmark} queries run by {@link NaiveTransactionQueries} over the same datasets, as the baseline
+ * to compare against. The list is parsed once in the setup, so these numbers leave out the per-query parse the
+ * original reader paid; {@link LoadBenchmark#baselineLoad(DatasetState)} measures that part.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BaselineBenchmark {
+    private NaiveTransactionQueries queries;
+    private String client;
+
+    @Setup(Level.Trial)
+    public void loadQueries(DatasetState dataset) throws IOException {
+        queries = new NaiveTransactionQueries(NaiveTransactionQueries.load(dataset.file));
+        client = dataset.client();
+    }
+
+    @Benchmark
+    public double getTotalTransactionAmount() {
+        return queries.getTotalTransactionAmount();
+    }
+
+    @Benchmark
+    public double getTotalTransactionAmountSentBy() {
+        return queries.getTotalTransactionAmountSentBy(client);
+    }
+
+    @Benchmark
+    public double getMaxTransactionAmount() {
+        return queries.getMaxTransactionAmount();
+    }
+
+    @Benchmark
+    public long countUniqueClients() {
+        return queries.countUniqueClients();
+    }
+
+    @Benchmark
+    public boolean hasOpenComplianceIssues() {
+        return queries.hasOpenComplianceIssues(client);
+    }
+
+    @Benchmark
+    public Map<String, List<Transaction>> getTransactionsByBeneficiaryName() {
+        return queries.getTransactionsByBeneficiaryName();
+    }
+
+    @Benchmark
+    public Set<Integer> getUnsolvedIssueIds() {
+        return queries.getUnsolvedIssueIds();
+    }
+
+    @Benchmark
+    public List<String> getAllSolvedIssueMessages() {
+        return queries.getAllSolvedIssueMessages();
+    }
+
+    @Benchmark
+    public List<Transaction> getTop3TransactionsByAmount() {
+        return queries.getTop3TransactionsByAmount();
+    }
+
+    @Benchmark
+    public Optional<Object> getTopSender() {
+        return queries.getTopSender();
+    }
+}
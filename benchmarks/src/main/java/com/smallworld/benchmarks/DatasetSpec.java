@@ -0,0 +1,163 @@
+package com.smallworld.benchmarks;
+
+/**
+ * Immutable shape of a synthetic dataset written by {@link TransactionDatasets}. Two datasets written from equal
+ * specs are identical, byte for byte.
+ */
+public final class DatasetSpec {
+    private final int transactions;
+    private final int clients;
+    private final double skew;
+    private final double issueRatio;
+    private final int maxIssuesPerMtn;
+    private final double solvedRatio;
+    private final long seed;
+
+    private DatasetSpec(Builder builder) {
+        this.transactions = builder.transactions;
+        this.clients = builder.clients;
+        this.skew = builder.skew;
+        this.issueRatio = builder.issueRatio;
+        this.maxIssuesPerMtn = builder.maxIssuesPerMtn;
+        this.solvedRatio = builder.solvedRatio;
+        this.seed = builder.seed;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return The number of distinct MTNs.
+     */
+    public int getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * @return The number of distinct client names senders and beneficiaries are drawn from.
+     */
+    public int getClients() {
+        return clients;
+    }
+
+    /**
+     * @return The Zipf exponent of the client draws: 0 draws every client uniformly, 1 and above concentrate most
+     * transactions on a few clients.
+     */
+    public double getSkew() {
+        return skew;
+    }
+
+    /**
+     * @return The fraction of MTNs carrying issues; each of them is repeated once per issue.
+     */
+    public double getIssueRatio() {
+        return issueRatio;
+    }
+
+    /**
+     * @return The maximum number of issues of an MTN with issues, drawn uniformly from one to this number.
+     */
+    public int getMaxIssuesPerMtn() {
+        return maxIssuesPerMtn;
+    }
+
+    /**
+     * @return The probability of an issue being solved.
+     */
+    public double getSolvedRatio() {
+        return solvedRatio;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public String toString() {
+        return "DatasetSpec{" +
+                "transactions=" + transactions +
+                ", clients=" + clients +
+                ", skew=" + skew +
+                ", issueRatio=" + issueRatio +
+                ", maxIssuesPerMtn=" + maxIssuesPerMtn +
+                ", solvedRatio=" + solvedRatio +
+                ", seed=" + seed +
+                '}';
+    }
+
+    /**
+     * Collects the parameters of a {@link DatasetSpec}. The defaults match the datasets of {@link DatasetState}.
+     */
+    public static final class Builder {
+        private int transactions = 10_000;
+        private int clients = 1_000;
+        private double skew;
+        private double issueRatio = 0.3;
+        private int maxIssuesPerMtn = 3;
+        private double solvedRatio = 0.5;
+        private long seed = 42L;
+
+        private Builder() {
+        }
+
+        public Builder transactions(int transactions) {
+            if (transactions < 0) {
+                throw new IllegalArgumentException("transactions must not be negative: " + transactions);
+            }
+            this.transactions = transactions;
+            return this;
+        }
+
+        public Builder clients(int clients) {
+            if (clients <= 0) {
+                throw new IllegalArgumentException("clients must be positive: " + clients);
+            }
+            this.clients = clients;
+            return this;
+        }
+
+        public Builder skew(double skew) {
+            if (!(skew >= 0) || Double.isInfinite(skew)) {
+                throw new IllegalArgumentException("skew must be a finite non-negative number: " + skew);
+            }
+            this.skew = skew;
+            return this;
+        }
+
+        public Builder issueRatio(double issueRatio) {
+            this.issueRatio = probability("issueRatio", issueRatio);
+            return this;
+        }
+
+        public Builder maxIssuesPerMtn(int maxIssuesPerMtn) {
+            if (maxIssuesPerMtn <= 0) {
+                throw new IllegalArgumentException("maxIssuesPerMtn must be positive: " + maxIssuesPerMtn);
+            }
+            this.maxIssuesPerMtn = maxIssuesPerMtn;
+            return this;
+        }
+
+        public Builder solvedRatio(double solvedRatio) {
+            this.solvedRatio = probability("solvedRatio", solvedRatio);
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public DatasetSpec build() {
+            return new DatasetSpec(this);
+        }
+
+        private static double probability(String name, double value) {
+            if (!(value >= 0 && value <= 1)) {
+                throw new IllegalArgumentException(name + " must be between 0 and 1: " + value);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.smallworld.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.smallworld.TransactionDataReader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A synthetic dataset written to a temporary JSON file, and converted to a binary snapshot, once per trial. The size and issue duplication ratio are JMH
+ * parameters, e.g. {@code -p transactions=1000000 -p issueDuplicationRatio=0.5}.
+ */
+@State(Scope.Benchmark)
+public class DatasetState {
+    @Param({"10000", "100000"})
+    public int transactions;
+
+    @Param({"0.0", "0.3"})
+    public double issueDuplicationRatio;
+
+    @Param("1000")
+    public int clients;
+
+    public Path file;
+    public Path snapshotFile;
+    public int rows;
+
+    @Setup(Level.Trial)
+    public void writeDataset() throws IOException {
+        file = Files.createTempFile("transactions-", ".json");
+        rows = TransactionDatasets.write(file, transactions, issueDuplicationRatio, clients, 42L);
+        snapshotFile = Files.createTempFile("transactions-", ".snapshot");
+        new TransactionDataReader().writeBinarySnapshot(file.toString(), snapshotFile.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDataset() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    /**
+     * @return A client name that exists in every dataset, used by the per-client queries.
+     */
+    public String client() {
+        return TransactionDatasets.clientName(0);
+    }
+}
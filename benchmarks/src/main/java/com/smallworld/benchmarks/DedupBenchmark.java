@@ -0,0 +1,60 @@
+package com.smallworld.benchmarks;
+
+import com.smallworld.IntHashSet;
+import com.smallworld.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MTN deduplication over the rows of a dataset, with the boxed {@code HashSet<Integer>} of the original queries and
+ * with {@link IntHashSet}. Compare {@code gc.alloc.rate.norm} divided by the row count for the bytes per row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DedupBenchmark {
+    private int[] mtns;
+
+    @Setup(Level.Trial)
+    public void loadMtns(DatasetState dataset) throws IOException {
+        // One MTN per row of the file, repeated for every issue of a transaction
+        List<Transaction> transactions = NaiveTransactionQueries.load(dataset.file);
+        mtns = transactions.stream().mapToInt(Transaction::getMtn).toArray();
+    }
+
+    @Benchmark
+    public int boxedHashSet() {
+        Set<Integer> uniqueMtns = new HashSet<>();
+        for (int mtn : mtns) {
+            uniqueMtns.add(mtn);
+        }
+        return uniqueMtns.size();
+    }
+
+    @Benchmark
+    public int intHashSet() {
+        IntHashSet uniqueMtns = new IntHashSet();
+        for (int mtn : mtns) {
+            uniqueMtns.add(mtn);
+        }
+        return uniqueMtns.size();
+    }
+}
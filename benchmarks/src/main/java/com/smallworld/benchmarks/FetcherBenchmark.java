@@ -0,0 +1,101 @@
+package com.smallworld.benchmarks;
+
+import com.smallworld.Transaction;
+import com.smallworld.TransactionDataFetcher;
+import com.smallworld.TransactionDataReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures every {@link TransactionDataFetcher} query against a loaded snapshot. Precomputed results are built once in
+ * the setup, so the numbers are those of a warm fetcher answering repeated queries.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FetcherBenchmark {
+    private TransactionDataFetcher fetcher;
+    private String client;
+
+    @Setup(Level.Trial)
+    public void loadFetcher(DatasetState dataset) throws IOException {
+        fetcher = new TransactionDataFetcher(new TransactionDataReader(), dataset.file.toString());
+        client = dataset.client();
+        fetcher.getReport();
+        fetcher.getIndexes();
+    }
+
+    @Benchmark
+    public double getTotalTransactionAmount() {
+        return fetcher.getTotalTransactionAmount();
+    }
+
+    @Benchmark
+    public double getTotalTransactionAmountSentBy() {
+        return fetcher.getTotalTransactionAmountSentBy(client);
+    }
+
+    @Benchmark
+    public double getMaxTransactionAmount() {
+        return fetcher.getMaxTransactionAmount();
+    }
+
+    @Benchmark
+    public long countUniqueClients() {
+        return fetcher.countUniqueClients();
+    }
+
+    @Benchmark
+    public boolean hasOpenComplianceIssues() {
+        return fetcher.hasOpenComplianceIssues(client);
+    }
+
+    @Benchmark
+    public Map<String, List<Transaction>> getTransactionsByBeneficiaryName() {
+        return fetcher.getTransactionsByBeneficiaryName();
+    }
+
+    @Benchmark
+    public Set<Integer> getUnsolvedIssueIds() {
+        return fetcher.getUnsolvedIssueIds();
+    }
+
+    @Benchmark
+    public List<String> getAllSolvedIssueMessages() {
+        return fetcher.getAllSolvedIssueMessages();
+    }
+
+    @Benchmark
+    public List<Transaction> getTop3TransactionsByAmount() {
+        return fetcher.getTop3TransactionsByAmount();
+    }
+
+    @Benchmark
+    public Optional<Object> getTopSender() {
+        return fetcher.getTopSender();
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsSentBy() {
+        return fetcher.getTransactionsSentBy(client);
+    }
+}
@@ -0,0 +1,64 @@
+package com.smallworld.benchmarks;
+
+import com.smallworld.Transaction;
+import com.smallworld.TransactionDataFetcher;
+import com.smallworld.TransactionDataReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures loading a dataset from disk: the snapshot load of {@link TransactionDataReader} from JSON and from a
+ * memory-mapped binary snapshot, a streaming scan that
+ * never materializes the list, the first report of a fresh fetcher, and the whole-array parse of the original reader.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+
+    @Benchmark
+    public int snapshotLoad(DatasetState dataset) {
+        // A fresh reader has no snapshot cached, so this always parses the file
+        return new TransactionDataReader().getSnapshot(dataset.file.toString()).getTransactions().size();
+    }
+
+    @Benchmark
+    public int binarySnapshotLoad(DatasetState dataset) {
+        return new TransactionDataReader().getSnapshot(dataset.snapshotFile.toString()).getTransactions().size();
+    }
+
+    @Benchmark
+    public double coldBinaryFetcherReport(DatasetState dataset) throws IOException {
+        TransactionDataFetcher fetcher = new TransactionDataFetcher(new TransactionDataReader(), dataset.snapshotFile.toString());
+        return fetcher.getTotalTransactionAmount();
+    }
+
+    @Benchmark
+    public long streamingScan(DatasetState dataset) throws IOException {
+        try (Stream<Transaction> transactions = new TransactionDataReader().streamTransactions(dataset.file.toString())) {
+            return transactions.count();
+        }
+    }
+
+    @Benchmark
+    public double coldFetcherReport(DatasetState dataset) throws IOException {
+        TransactionDataFetcher fetcher = new TransactionDataFetcher(new TransactionDataReader(), dataset.file.toString());
+        return fetcher.getTotalTransactionAmount();
+    }
+
+    @Benchmark
+    public int baselineLoad(DatasetState dataset) throws IOException {
+        return NaiveTransactionQueries.load(dataset.file).size();
+    }
+}
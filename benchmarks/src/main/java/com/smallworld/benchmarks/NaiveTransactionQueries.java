@@ -0,0 +1,116 @@
+package com.smallworld.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.Transaction;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The original stream based implementation of the {@code TransactionDataFetcher} queries, kept as the baseline the
+ * optimized fetcher is compared against. Every query re-scans the whole list and deduplicates MTNs with a fresh
+ * {@link HashSet}. Do not fix anything here: its value is in staying what it was.
+ * <p>
+ * The original reader also parsed the whole file again on every query; {@link #load(Path)} reproduces that parse so
+ * the end-to-end baseline cost of a query is the load plus the query.
+ */
+public class NaiveTransactionQueries {
+    private final List<Transaction> transactions;
+
+    public NaiveTransactionQueries(List<Transaction> transactions) {
+        this.transactions = transactions;
+    }
+
+    /**
+     * Parses a whole JSON array of transactions into memory like the original reader did.
+     *
+     * @param file The file to parse.
+     * @return The transactions of the file.
+     * @throws IOException If the file cannot be read or parsed.
+     */
+    public static List<Transaction> load(Path file) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        return List.of(objectMapper.readValue(file.toFile(), Transaction[].class));
+    }
+
+    public double getTotalTransactionAmount() {
+        Set<Integer> uniqueMtns = new HashSet<>();
+        return transactions.stream()
+                .filter(transaction -> uniqueMtns.add(transaction.getMtn()))
+                .mapToDouble(Transaction::getAmount)
+                .sum();
+    }
+
+    public double getTotalTransactionAmountSentBy(String senderFullName) {
+        Set<Integer> uniqueMtns = new HashSet<>();
+        return transactions.stream()
+                .filter(transaction -> senderFullName.equals(transaction.getSenderFullName()) && uniqueMtns.add(transaction.getMtn()))
+                .mapToDouble(Transaction::getAmount)
+                .sum();
+    }
+
+    public double getMaxTransactionAmount() {
+        Set<Integer> uniqueMtns = new HashSet<>();
+        return transactions.stream()
+                .filter(transaction -> uniqueMtns.add(transaction.getMtn()))
+                .mapToDouble(Transaction::getAmount)
+                .max()
+                .orElse(0.0);
+    }
+
+    public long countUniqueClients() {
+        Set<String> uniqueClients = transactions.stream()
+                .flatMap(transaction -> Stream.of(transaction.getSenderFullName(), transaction.getBeneficiaryFullName()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        return uniqueClients.size();
+    }
+
+    public boolean hasOpenComplianceIssues(String clientFullName) {
+        return transactions.stream()
+                .anyMatch(transaction ->
+                        (clientFullName.equals(transaction.getSenderFullName()) || clientFullName.equals(transaction.getBeneficiaryFullName()))
+                                && transaction.hasOpenIssue());
+    }
+
+    public Map<String, List<Transaction>> getTransactionsByBeneficiaryName() {
+        Set<Integer> uniqueMtns = new HashSet<>();
+        return transactions.stream()
+                .filter(transaction -> uniqueMtns.add(transaction.getMtn()))
+                .collect(Collectors.groupingBy(Transaction::getBeneficiaryFullName));
+    }
+
+    public Set<Integer> getUnsolvedIssueIds() {
+        return transactions.stream()
+                .filter(Transaction::hasOpenIssue)
+                .map(Transaction::getIssueId)
+                .collect(Collectors.toSet());
+    }
+
+    public List<String> getAllSolvedIssueMessages() {
+        return transactions.stream()
+                .filter(transaction -> transaction.isIssueSolved() && transaction.getIssueMessage() != null)
+                .map(Transaction::getIssueMessage)
+                .collect(Collectors.toList());
+    }
+
+    public List<Transaction> getTop3TransactionsByAmount() {
+        Set<Integer> uniqueMtns = new HashSet<>();
+        return transactions.stream()
+                .filter(transaction -> uniqueMtns.add(transaction.getMtn()))
+                .sorted(Comparator.comparingDouble(Transaction::getAmount).reversed())
+                .limit(3)
+                .collect(Collectors.toList());
+    }
+
+    public Optional<Object> getTopSender() {
+        Map<String, Double> senderTotalAmounts = transactions.stream()
+                .collect(Collectors.groupingBy(Transaction::getSenderFullName, Collectors.summingDouble(Transaction::getAmount)));
+        return senderTotalAmounts.entrySet().stream()
+                .max(Comparator.comparingDouble(Map.Entry::getValue))
+                .map(Map.Entry::getKey);
+    }
+}
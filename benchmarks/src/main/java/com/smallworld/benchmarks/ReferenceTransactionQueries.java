@@ -0,0 +1,164 @@
+package com.smallworld.benchmarks;
+
+import com.smallworld.Transaction;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Plain stream implementations of the {@code TransactionDataFetcher} queries that {@link NaiveTransactionQueries}
+ * does not cover, or covers with the original semantics, written for obviousness rather than speed. The
+ * {@link ScalingSuite} checks the fetcher against them, and against {@link NaiveTransactionQueries} where the
+ * semantics still agree.
+ * <p>
+ * Like the fetcher, every query considers the first row of each MTN only, except the issue queries, which consider
+ * every row since each row carries one issue.
+ */
+public class ReferenceTransactionQueries {
+    private final List<Transaction> transactions;
+    private final List<Transaction> uniqueTransactions;
+
+    public ReferenceTransactionQueries(List<Transaction> transactions) {
+        this.transactions = transactions;
+        Set<Integer> uniqueMtns = new HashSet<>();
+        this.uniqueTransactions = transactions.stream()
+                .filter(transaction -> uniqueMtns.add(transaction.getMtn()))
+                .collect(Collectors.toList());
+    }
+
+    public List<Integer> getMtnsSentBy(String senderFullName) {
+        return uniqueTransactions.stream()
+                .filter(transaction -> senderFullName.equals(transaction.getSenderFullName()))
+                .map(Transaction::getMtn)
+                .collect(Collectors.toList());
+    }
+
+    public List<Integer> getMtnsReceivedBy(String beneficiaryFullName) {
+        return uniqueTransactions.stream()
+                .filter(transaction -> beneficiaryFullName.equals(transaction.getBeneficiaryFullName()))
+                .map(Transaction::getMtn)
+                .collect(Collectors.toList());
+    }
+
+    public int countOpenComplianceIssues(String clientFullName) {
+        return (int) transactions.stream()
+                .filter(transaction -> transaction.hasOpenIssue() && isClient(transaction, clientFullName))
+                .count();
+    }
+
+    public int countOpenComplianceIssuesSentBy(String senderFullName) {
+        return (int) transactions.stream()
+                .filter(transaction -> transaction.hasOpenIssue() && senderFullName.equals(transaction.getSenderFullName()))
+                .count();
+    }
+
+    /**
+     * @param mtn The MTN of the transaction.
+     * @return The ids of the issues of the transaction, in file order.
+     */
+    public List<Integer> getIssueIdsForMtn(int mtn) {
+        return transactions.stream()
+                .filter(transaction -> transaction.getMtn() == mtn && transaction.getIssueId() != null)
+                .map(Transaction::getIssueId)
+                .collect(Collectors.toList());
+    }
+
+    public List<String> getClientsWithMoreOpenIssuesThan(int threshold) {
+        Map<String, Integer> openIssues = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            if (transaction.hasOpenIssue()) {
+                Set<String> clients = new HashSet<>();
+                clients.add(transaction.getSenderFullName());
+                clients.add(transaction.getBeneficiaryFullName());
+                clients.remove(null);
+                clients.forEach(client -> openIssues.merge(client, 1, Integer::sum));
+            }
+        }
+        return openIssues.entrySet().stream()
+                .filter(entry -> entry.getValue() > threshold)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return The MTNs of each beneficiary, in file order.
+     */
+    public Map<String, List<Integer>> getMtnsByBeneficiaryName() {
+        return uniqueTransactions.stream()
+                .collect(Collectors.groupingBy(Transaction::getBeneficiaryFullName, LinkedHashMap::new,
+                        Collectors.mapping(Transaction::getMtn, Collectors.toList())));
+    }
+
+    /**
+     * @param k The number of amounts to retrieve.
+     * @return The k highest amounts, highest first.
+     */
+    public List<Double> getTopAmounts(int k) {
+        return uniqueTransactions.stream()
+                .map(Transaction::getAmount)
+                .sorted(Comparator.reverseOrder())
+                .limit(k)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return The total amount sent by each sender.
+     */
+    public Map<String, Double> getSenderTotals() {
+        return uniqueTransactions.stream()
+                .filter(transaction -> transaction.getSenderFullName() != null)
+                .collect(Collectors.groupingBy(Transaction::getSenderFullName, Collectors.summingDouble(Transaction::getAmount)));
+    }
+
+    public List<String> getTopSenders(int k) {
+        return getSenderTotals().entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(k)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param minAmount The lowest amount selected.
+     * @param maxAmount The highest amount selected.
+     * @param minMtn    The first MTN selected.
+     * @param maxMtn    The last MTN selected.
+     * @return The MTNs in the ranges carrying at least one unsolved issue, in file order.
+     */
+    public List<Integer> selectOpenIssueMtns(double minAmount, double maxAmount, int minMtn, int maxMtn) {
+        Set<Integer> openMtns = transactions.stream()
+                .filter(Transaction::hasOpenIssue)
+                .map(Transaction::getMtn)
+                .collect(Collectors.toSet());
+        List<Integer> mtns = new ArrayList<>();
+        for (Transaction transaction : uniqueTransactions) {
+            if (transaction.getAmount() >= minAmount && transaction.getAmount() <= maxAmount
+                    && transaction.getMtn() >= minMtn && transaction.getMtn() <= maxMtn
+                    && openMtns.contains(transaction.getMtn())) {
+                mtns.add(transaction.getMtn());
+            }
+        }
+        return mtns;
+    }
+
+    /**
+     * @return Every amount, one per MTN, in increasing order.
+     */
+    public double[] getSortedAmounts() {
+        return uniqueTransactions.stream().mapToDouble(Transaction::getAmount).sorted().toArray();
+    }
+
+    private static boolean isClient(Transaction transaction, String clientFullName) {
+        return Objects.equals(clientFullName, transaction.getSenderFullName())
+                || Objects.equals(clientFullName, transaction.getBeneficiaryFullName());
+    }
+}
@@ -0,0 +1,364 @@
+package com.smallworld.benchmarks;
+
+import com.smallworld.ApproximationSettings;
+import com.smallworld.ComplianceIssue;
+import com.smallworld.MetricsRegistry;
+import com.smallworld.Transaction;
+import com.smallworld.TransactionDataFetcher;
+import com.smallworld.TransactionDataReader;
+import com.smallworld.TransactionFilter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Runs every {@link TransactionDataFetcher} query on synthetic datasets of increasing size, checks each result against
+ * {@link NaiveTransactionQueries} and {@link ReferenceTransactionQueries}, and records the time of each query and the
+ * peak heap of each size as CSV. Unlike the JMH benchmarks it runs each query a handful of times only, so it can
+ * reach sizes where a single query takes seconds; it is a correctness and scaling check, not a precise measurement.
+ * <p>
+ * Options, all optional, given as {@code --name=value}:
+ * <pre>
+ *   --sizes=1e3,1e4,1e5,1e6   numbers of distinct MTNs, one dataset each
+ *   --clients=1000            distinct client names
+ *   --skew=0                  Zipf exponent of the client draws
+ *   --issue-ratio=0.3         fraction of MTNs carrying issues
+ *   --max-issues=3            maximum issues of an MTN with issues
+ *   --seed=42
+ *   --format=JSON             JSON, NDJSON or BINARY_SNAPSHOT, the file the fetcher reads; the streaming
+ *                             queries only read JSON and are left out for a binary snapshot
+ *   --warm-runs=3             runs after the first one, the fastest of which is reported
+ *   --reference-limit=1e7     largest size checked against the references, which hold every row as an object
+ *   --output=scaling.csv      also write the CSV to this file
+ * </pre>
+ * Exits with status 1 if any result differs from its reference.
+ */
+public final class ScalingSuite {
+    private static final String CSV_HEADER = "transactions,rows,query,coldMillis,warmMillis,peakHeapMb,check";
+    private static final int TOP_K = 10;
+    // Standard errors of the distinct count estimate tolerated before the check fails
+    private static final double ESTIMATE_SIGMAS = 4;
+
+    private final Map<String, String> options;
+    private final DatasetSpec.Builder spec;
+    private final TransactionDatasets.Format format;
+    private final int warmRuns;
+    private final long referenceLimit;
+    private final List<String> csv = new ArrayList<>();
+    private final List<String> failures = new ArrayList<>();
+
+    private ScalingSuite(Map<String, String> options) {
+        this.options = options;
+        this.spec = DatasetSpec.builder()
+                .clients(intOption("clients", 1_000))
+                .skew(Double.parseDouble(options.getOrDefault("skew", "0")))
+                .issueRatio(Double.parseDouble(options.getOrDefault("issue-ratio", "0.3")))
+                .maxIssuesPerMtn(intOption("max-issues", 3))
+                .seed(Long.parseLong(options.getOrDefault("seed", "42")));
+        this.format = TransactionDatasets.Format.valueOf(options.getOrDefault("format", "JSON"));
+        this.warmRuns = intOption("warm-runs", 3);
+        this.referenceLimit = intOption("reference-limit", 10_000_000);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        ScalingSuite suite = new ScalingSuite(options);
+        System.out.println(CSV_HEADER);
+        for (String size : options.getOrDefault("sizes", "1e3,1e4,1e5,1e6").split(",")) {
+            suite.run(parseCount(size));
+        }
+        if (options.containsKey("output")) {
+            List<String> lines = new ArrayList<>();
+            lines.add(CSV_HEADER);
+            lines.addAll(suite.csv);
+            Files.write(Paths.get(options.get("output")), lines);
+        }
+        suite.failures.forEach(System.err::println);
+        System.exit(suite.failures.isEmpty() ? 0 : 1);
+    }
+
+    private void run(int transactions) throws IOException {
+        DatasetSpec dataset = spec.transactions(transactions).build();
+        Path json = Files.createTempFile("transactions-", ".json");
+        Path file = format == TransactionDatasets.Format.JSON ? json : Files.createTempFile("transactions-", "." + format.name().toLowerCase());
+        try {
+            long rows = TransactionDatasets.write(json, dataset, TransactionDatasets.Format.JSON);
+            if (file != json) {
+                // Written from the same spec, so the fetcher file holds exactly the rows the references read
+                TransactionDatasets.write(file, dataset, format);
+            }
+            new SizeRun(transactions, rows, file, json).run();
+        } finally {
+            Files.deleteIfExists(json);
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * The queries and checks of one dataset. The fetcher runs first, on a collected heap, so its peak heap is not
+     * inflated by the references; the references then run on the same data and every result is compared.
+     */
+    private final class SizeRun {
+        private final int transactions;
+        private final long rows;
+        private final Path file;
+        private final Path json;
+        private final String client = TransactionDatasets.clientName(0);
+        private final Map<String, double[]> timings = new LinkedHashMap<>();
+        private final Map<String, Object> results = new HashMap<>();
+        private final Map<String, String> checks = new HashMap<>();
+
+        private SizeRun(int transactions, long rows, Path file, Path json) {
+            this.transactions = transactions;
+            this.rows = rows;
+            this.file = file;
+            this.json = json;
+        }
+
+        private void run() throws IOException {
+            resetPeakHeap();
+            long start = System.nanoTime();
+            TransactionDataFetcher fetcher = new TransactionDataFetcher(new TransactionDataReader(), file.toString(),
+                    ForkJoinPool.commonPool(), MetricsRegistry.NOOP, ApproximationSettings.DEFAULT);
+            int loaded = fetcher.getAll().size();
+            timings.put("load", new double[]{millisSince(start), Double.NaN});
+            check("load", loaded == rows, rows + " rows", loaded + " rows");
+            runFetcher(fetcher);
+            double peakHeapMb = peakHeapBytes() / (1024.0 * 1024.0);
+
+            if (transactions <= referenceLimit) {
+                start = System.nanoTime();
+                List<Transaction> source = NaiveTransactionQueries.load(json);
+                checkReferences(new NaiveTransactionQueries(source), new ReferenceTransactionQueries(source));
+                timings.put("reference", new double[]{millisSince(start), Double.NaN});
+            }
+
+            PrintStream out = System.out;
+            timings.forEach((query, timing) -> {
+                String check = checks.getOrDefault(query, transactions <= referenceLimit || query.equals("load") ? "" : "skipped");
+                String line = String.format("%d,%d,%s,%.3f,%.3f,%.1f,%s", transactions, rows, query, timing[0], timing[1], peakHeapMb, check);
+                csv.add(line);
+                out.println(line);
+            });
+        }
+
+        private void runFetcher(TransactionDataFetcher fetcher) {
+            int mtn = Math.max(1, transactions / 2);
+            TransactionFilter filter = TransactionFilter.builder()
+                    .amountBetween(1_000, 5_000)
+                    .mtnBetween(1, transactions / 2)
+                    .issueState(TransactionFilter.IssueState.OPEN)
+                    .build();
+            measure("getTotalTransactionAmount", fetcher::getTotalTransactionAmount);
+            // The streaming scans parse the source file again and only read JSON
+            boolean streaming = format != TransactionDatasets.Format.BINARY_SNAPSHOT;
+            if (streaming) {
+                measure("getTotalTransactionAmountStreaming", fetcher::getTotalTransactionAmountStreaming);
+            }
+            measure("getTotalTransactionAmountSentBy", () -> fetcher.getTotalTransactionAmountSentBy(client));
+            measure("getTransactionsSentBy", () -> mtnsOf(fetcher.getTransactionsSentBy(client)));
+            measure("getTransactionsReceivedBy", () -> mtnsOf(fetcher.getTransactionsReceivedBy(client)));
+            measure("getMaxTransactionAmount", fetcher::getMaxTransactionAmount);
+            if (streaming) {
+                measure("getMaxTransactionAmountStreaming", fetcher::getMaxTransactionAmountStreaming);
+            }
+            measure("countUniqueClients", fetcher::countUniqueClients);
+            measure("hasOpenComplianceIssues", () -> fetcher.hasOpenComplianceIssues(client));
+            measure("countOpenComplianceIssues", () -> fetcher.countOpenComplianceIssues(client));
+            measure("countOpenComplianceIssuesSentBy", () -> fetcher.countOpenComplianceIssuesSentBy(client));
+            measure("getComplianceIssuesForMtn", () -> fetcher.getComplianceIssuesForMtn(mtn).stream()
+                    .map(ComplianceIssue::getIssueId).collect(Collectors.toList()));
+            measure("getClientsWithMoreOpenIssuesThan", () -> fetcher.getClientsWithMoreOpenIssuesThan(1));
+            measure("getTransactionsByBeneficiaryName", () -> fetcher.getTransactionsByBeneficiaryName().entrySet().stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey, entry -> mtnsOf(entry.getValue()))));
+            measure("getUnsolvedIssueIds", fetcher::getUnsolvedIssueIds);
+            measure("getAllSolvedIssueMessages", fetcher::getAllSolvedIssueMessages);
+            measure("getTop3TransactionsByAmount", () -> amountsOf(fetcher.getTop3TransactionsByAmount()));
+            measure("getTopTransactionsByAmount", () -> amountsOf(fetcher.getTopTransactionsByAmount(TOP_K)));
+            measure("getTopSenders", () -> fetcher.getTopSenders(TOP_K));
+            measure("getTopSender", fetcher::getTopSender);
+            measure("select", () -> mtnsOf(fetcher.select(filter).getTransactions()));
+            measure("estimateUniqueClients", fetcher::estimateUniqueClients);
+            measure("estimateAmountQuantile", () -> fetcher.estimateAmountQuantile(0.5));
+            measure("estimateTopSenders", () -> fetcher.estimateTopSenders(TOP_K));
+        }
+
+        private void checkReferences(NaiveTransactionQueries naive, ReferenceTransactionQueries reference) {
+            int mtn = Math.max(1, transactions / 2);
+            checkAmount("getTotalTransactionAmount", naive.getTotalTransactionAmount());
+            checkAmount("getTotalTransactionAmountStreaming", naive.getTotalTransactionAmount());
+            checkAmount("getTotalTransactionAmountSentBy", naive.getTotalTransactionAmountSentBy(client));
+            checkEquals("getTransactionsSentBy", reference.getMtnsSentBy(client));
+            checkEquals("getTransactionsReceivedBy", reference.getMtnsReceivedBy(client));
+            checkAmount("getMaxTransactionAmount", naive.getMaxTransactionAmount());
+            checkAmount("getMaxTransactionAmountStreaming", naive.getMaxTransactionAmount());
+            checkEquals("countUniqueClients", naive.countUniqueClients());
+            checkEquals("hasOpenComplianceIssues", naive.hasOpenComplianceIssues(client));
+            checkEquals("countOpenComplianceIssues", reference.countOpenComplianceIssues(client));
+            checkEquals("countOpenComplianceIssuesSentBy", reference.countOpenComplianceIssuesSentBy(client));
+            checkEquals("getComplianceIssuesForMtn", reference.getIssueIdsForMtn(mtn));
+            checkEquals("getClientsWithMoreOpenIssuesThan", reference.getClientsWithMoreOpenIssuesThan(1));
+            checkEquals("getTransactionsByBeneficiaryName", reference.getMtnsByBeneficiaryName());
+            checkEquals("getUnsolvedIssueIds", naive.getUnsolvedIssueIds());
+            checkEquals("getAllSolvedIssueMessages", naive.getAllSolvedIssueMessages());
+            checkEquals("getTop3TransactionsByAmount", amountsOf(naive.getTop3TransactionsByAmount()));
+            checkEquals("getTopTransactionsByAmount", reference.getTopAmounts(TOP_K));
+            checkEquals("getTopSenders", reference.getTopSenders(TOP_K));
+            // The original getTopSender counted repeated MTNs once per issue, the fetcher counts each MTN once
+            checkEquals("getTopSender", reference.getTopSenders(1).stream().findFirst());
+            checkEquals("select", reference.selectOpenIssueMtns(1_000, 5_000, 1, transactions / 2));
+            checkUniqueClientsEstimate(naive.countUniqueClients());
+            checkQuantileEstimate(reference.getSortedAmounts(), 0.5);
+            checkHeavyHitters(reference.getSenderTotals(), naive.getTotalTransactionAmount());
+        }
+
+        private void measure(String query, Supplier<Object> call) {
+            long start = System.nanoTime();
+            results.put(query, call.get());
+            double cold = millisSince(start);
+            double warm = Double.NaN;
+            for (int run = 0; run < warmRuns; run++) {
+                start = System.nanoTime();
+                call.get();
+                warm = Double.isNaN(warm) ? millisSince(start) : Math.min(warm, millisSince(start));
+            }
+            timings.put(query, new double[]{cold, warm});
+        }
+
+        private void checkEquals(String query, Object expected) {
+            if (!results.containsKey(query)) {
+                return;
+            }
+            Object actual = results.get(query);
+            check(query, Objects.equals(expected, actual), expected, actual);
+        }
+
+        private void checkAmount(String query, double expected) {
+            if (!results.containsKey(query)) {
+                return;
+            }
+            double actual = (Double) results.get(query);
+            // Summation order differs between the fetcher and the streams, so allow for rounding
+            check(query, Math.abs(expected - actual) <= Math.abs(expected) * 1e-9, expected, actual);
+        }
+
+        private void checkUniqueClientsEstimate(long expected) {
+            long actual = (Long) results.get("estimateUniqueClients");
+            double tolerance = ESTIMATE_SIGMAS * ApproximationSettings.DEFAULT.getClientsRelativeError() * expected;
+            check("estimateUniqueClients", Math.abs(actual - expected) <= tolerance, expected, actual);
+        }
+
+        private void checkQuantileEstimate(double[] sortedAmounts, double quantile) {
+            double actual = (Double) results.get("estimateAmountQuantile");
+            if (sortedAmounts.length == 0) {
+                check("estimateAmountQuantile", actual == 0.0, 0.0, actual);
+                return;
+            }
+            // Within the relative accuracy of an amount whose rank is within one rank of the exact one
+            double accuracy = ApproximationSettings.DEFAULT.getAmountRelativeAccuracy();
+            int rank = (int) (quantile * (sortedAmounts.length - 1));
+            double low = sortedAmounts[Math.max(0, rank - 1)] * (1 - accuracy);
+            double high = sortedAmounts[Math.min(sortedAmounts.length - 1, rank + 1)] * (1 + accuracy);
+            check("estimateAmountQuantile", actual >= low && actual <= high, "[" + low + ", " + high + "]", actual);
+        }
+
+        private void checkHeavyHitters(Map<String, Double> senderTotals, double totalAmount) {
+            @SuppressWarnings("unchecked")
+            List<String> actual = (List<String>) results.get("estimateTopSenders");
+            // Senders well above the error share of the total are guaranteed to be found
+            double share = 2 * ApproximationSettings.DEFAULT.getHeavyHitterRelativeError() * totalAmount;
+            List<String> expected = senderTotals.entrySet().stream()
+                    .filter(entry -> entry.getValue() > share)
+                    .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                    .limit(TOP_K)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+            check("estimateTopSenders", actual.size() <= TOP_K && actual.containsAll(expected), "a superset of " + expected, actual);
+        }
+
+        private void check(String query, boolean passed, Object expected, Object actual) {
+            checks.put(query, passed ? "ok" : "FAILED");
+            if (!passed) {
+                failures.add(String.format("%d transactions, %s: expected %s but was %s", transactions, query,
+                        abbreviate(expected), abbreviate(actual)));
+            }
+        }
+    }
+
+    private int intOption(String name, int defaultValue) {
+        return options.containsKey(name) ? parseCount(options.get(name)) : defaultValue;
+    }
+
+    /**
+     * Parses a count written either as an integer or in scientific notation, e.g. {@code 1e6}.
+     */
+    private static int parseCount(String value) {
+        double count = Double.parseDouble(value.trim());
+        if (count != Math.rint(count) || count < 0 || count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Expected a non-negative integer count: " + value);
+        }
+        return (int) count;
+    }
+
+    private static List<Integer> mtnsOf(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getMtn).collect(Collectors.toList());
+    }
+
+    private static List<Double> amountsOf(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getAmount).collect(Collectors.toList());
+    }
+
+    private static String abbreviate(Object value) {
+        String text = value instanceof double[] ? Arrays.toString((double[]) value) : String.valueOf(value);
+        return text.length() <= 200 ? text : text.substring(0, 200) + "...";
+    }
+
+    private static double millisSince(long start) {
+        return (System.nanoTime() - start) / 1_000_000.0;
+    }
+
+    private static void resetPeakHeap() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * @return The sum of the peak usages of the heap pools since the last reset. Pools peak at different times, so
+     * this bounds the true peak from above.
+     */
+    private static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,187 @@
+package com.smallworld.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.smallworld.TransactionDataReader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Writes synthetic transaction files shaped like {@code transactions.json}, so benchmarks can run against datasets
+ * far larger than the sample one. Rows are generated one MTN at a time and streamed to the file, so the size of a
+ * dataset is only bounded by the disk.
+ */
+public final class TransactionDatasets {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    // Rows of the widest snapshot column, the amounts, that fit in a single mapping
+    static final int MAX_SNAPSHOT_TRANSACTIONS = Integer.MAX_VALUE / Double.BYTES;
+
+    /**
+     * File formats the reader accepts.
+     */
+    public enum Format {
+        // A top-level JSON array, like transactions.json
+        JSON,
+        // One JSON object per line
+        NDJSON,
+        // The memory-mapped binary snapshot written by TransactionDataReader#writeBinarySnapshot
+        BINARY_SNAPSHOT
+    }
+
+    private TransactionDatasets() {
+    }
+
+    /**
+     * Writes a JSON array of transactions to a file.
+     *
+     * @param file                  The file to write.
+     * @param transactions          The number of distinct MTNs to generate.
+     * @param issueDuplicationRatio The fraction of MTNs carrying issues; each of them is repeated once per issue, with
+     *                              between one and three issues per MTN.
+     * @param clients               The number of distinct client names senders and beneficiaries are drawn from.
+     * @param seed                  The seed of the generator, so runs can be compared on identical data.
+     * @return The number of rows written.
+     * @throws IOException If the file cannot be written.
+     */
+    public static int write(Path file, int transactions, double issueDuplicationRatio, int clients, long seed) throws IOException {
+        DatasetSpec spec = DatasetSpec.builder()
+                .transactions(transactions)
+                .issueRatio(issueDuplicationRatio)
+                .clients(clients)
+                .seed(seed)
+                .build();
+        return Math.toIntExact(write(file, spec, Format.JSON));
+    }
+
+    /**
+     * Writes the transactions of a spec to a file.
+     *
+     * @param file   The file to write.
+     * @param spec   The shape of the dataset.
+     * @param format The format of the file. A binary snapshot is converted from a temporary JSON file, which loads
+     *               the whole dataset into a column store on the heap first, unlike the streamed JSON formats.
+     * @return The number of rows written, one per issue of each MTN with issues and one per other MTN.
+     * @throws IOException              If the file cannot be written.
+     * @throws IllegalArgumentException If a binary snapshot would hold more MTNs than a snapshot column can map.
+     */
+    public static long write(Path file, DatasetSpec spec, Format format) throws IOException {
+        if (format == Format.BINARY_SNAPSHOT && spec.getTransactions() > MAX_SNAPSHOT_TRANSACTIONS) {
+            throw new IllegalArgumentException("A binary snapshot holds at most " + MAX_SNAPSHOT_TRANSACTIONS
+                    + " transactions, its amounts column being mapped as one buffer of at most 2 GiB: " + spec);
+        }
+        if (format != Format.BINARY_SNAPSHOT) {
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(Files.newBufferedWriter(file))) {
+                if (format == Format.NDJSON) {
+                    generator.setRootValueSeparator(new SerializedString("\n"));
+                    return generate(generator, spec);
+                }
+                generator.writeStartArray();
+                long rows = generate(generator, spec);
+                generator.writeEndArray();
+                return rows;
+            }
+        }
+        Path json = Files.createTempFile("transactions-", ".json");
+        try {
+            long rows = write(json, spec, Format.JSON);
+            new TransactionDataReader().writeBinarySnapshot(json.toString(), file.toString());
+            return rows;
+        } finally {
+            Files.deleteIfExists(json);
+        }
+    }
+
+    /**
+     * @param client The index of a client, between 0 and the number of clients of the spec.
+     * @return The full name of the client in every generated dataset.
+     */
+    public static String clientName(int client) {
+        return "Client " + client;
+    }
+
+    private static long generate(JsonGenerator generator, DatasetSpec spec) throws IOException {
+        Random random = new Random(spec.getSeed());
+        ClientSampler clients = new ClientSampler(spec.getClients(), spec.getSkew());
+        long rows = 0;
+        int nextIssueId = 1;
+        for (int mtn = 1; mtn <= spec.getTransactions(); mtn++) {
+            double amount = Math.round(random.nextDouble() * 1_000_000) / 100.0;
+            String sender = clientName(clients.next(random));
+            String beneficiary = clientName(clients.next(random));
+            int senderAge = 18 + random.nextInt(70);
+            int beneficiaryAge = 18 + random.nextInt(70);
+            if (random.nextDouble() >= spec.getIssueRatio()) {
+                writeRow(generator, mtn, amount, sender, senderAge, beneficiary, beneficiaryAge, null, true, null);
+                rows++;
+                continue;
+            }
+            int issues = 1 + random.nextInt(spec.getMaxIssuesPerMtn());
+            for (int issue = 0; issue < issues; issue++) {
+                int issueId = nextIssueId++;
+                writeRow(generator, mtn, amount, sender, senderAge, beneficiary, beneficiaryAge,
+                        issueId, random.nextDouble() < spec.getSolvedRatio(), "Issue " + issueId);
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static void writeRow(JsonGenerator generator, int mtn, double amount, String sender, int senderAge,
+                                 String beneficiary, int beneficiaryAge, Integer issueId, boolean issueSolved,
+                                 String issueMessage) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("mtn", mtn);
+        generator.writeNumberField("amount", amount);
+        generator.writeStringField("senderFullName", sender);
+        generator.writeNumberField("senderAge", senderAge);
+        generator.writeStringField("beneficiaryFullName", beneficiary);
+        generator.writeNumberField("beneficiaryAge", beneficiaryAge);
+        if (issueId == null) {
+            generator.writeNullField("issueId");
+        } else {
+            generator.writeNumberField("issueId", issueId);
+        }
+        generator.writeBooleanField("issueSolved", issueSolved);
+        generator.writeStringField("issueMessage", issueMessage);
+        generator.writeEndObject();
+    }
+
+    /**
+     * Draws client indexes with a Zipf distribution: client i is drawn with a probability proportional to
+     * {@code 1 / (i + 1)^skew}. Without skew it falls back to a plain uniform draw.
+     */
+    private static final class ClientSampler {
+        private final int clients;
+        // Cumulative weights, only filled with a skew
+        private final double[] cumulative;
+
+        private ClientSampler(int clients, double skew) {
+            this.clients = clients;
+            if (skew == 0) {
+                this.cumulative = null;
+                return;
+            }
+            this.cumulative = new double[clients];
+            double total = 0;
+            for (int client = 0; client < clients; client++) {
+                total += Math.pow(client + 1, -skew);
+                cumulative[client] = total;
+            }
+        }
+
+        private int next(Random random) {
+            if (cumulative == null) {
+                return random.nextInt(clients);
+            }
+            double target = random.nextDouble() * cumulative[clients - 1];
+            int index = Arrays.binarySearch(cumulative, target);
+            // A miss returns -(insertion point) - 1, the first client whose cumulative weight exceeds the target
+            return index >= 0 ? index : Math.min(-index - 1, clients - 1);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.smallworld;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fixed-memory sketches over the rows of a {@link TransactionColumnStore}: distinct clients in a
+ * {@link HyperLogLog}, transaction amounts in a {@link QuantileSketch} and the amounts sent per sender in a
+ * {@link SpaceSaving} sketch. Only the sketches are fixed: building them from a store also hashes each distinct name
+ * once, in a table of 8 bytes per name that lives until the sketches are built. Aggregates over disjoint rows merge with {@link #merge(ApproximateAggregates)}, which is
+ * how {@link #of(TransactionColumnStore, ApproximationSettings, ForkJoinPool)} splits the work across cores.
+ * Not thread-safe while rows are being added.
+ */
+public final class ApproximateAggregates {
+    // Smallest range worth handing to a separate fork-join task
+    private static final int MIN_PARTITION_SIZE = 4096;
+
+    private final HyperLogLog clients;
+    private final QuantileSketch amounts;
+    private final SpaceSaving senders;
+
+    public ApproximateAggregates(ApproximationSettings settings) {
+        this.clients = HyperLogLog.withRelativeError(settings.getClientsRelativeError());
+        this.amounts = new QuantileSketch(settings.getAmountRelativeAccuracy());
+        this.senders = SpaceSaving.withRelativeError(settings.getHeavyHitterRelativeError());
+    }
+
+    /**
+     * Sketches every row of the store, splitting the rows into ranges sketched in parallel on the given pool.
+     *
+     * @param store    The store holding the transactions.
+     * @param settings The error bounds of the sketches.
+     * @param pool     The pool running the partitions, or null to run on the calling thread.
+     * @return The sketches of the store.
+     */
+    public static ApproximateAggregates of(TransactionColumnStore store, ApproximationSettings settings, ForkJoinPool pool) {
+        // Names are hashed once per distinct name rather than once per row
+        long[] nameHashes = new long[store.getNameCount()];
+        for (int id = 0; id < nameHashes.length; id++) {
+            nameHashes[id] = HyperLogLog.hash(store.getName(id));
+        }
+        if (pool == null) {
+            return new ApproximateAggregates(settings).acceptRange(store, nameHashes, 0, store.size());
+        }
+        int partitionSize = Math.max(MIN_PARTITION_SIZE, store.size() / (pool.getParallelism() * 4) + 1);
+        return pool.invoke(new RangeTask(store, settings, nameHashes, 0, store.size(), partitionSize));
+    }
+
+    private ApproximateAggregates acceptRange(TransactionColumnStore store, long[] nameHashes, int fromRow, int toRow) {
+        for (int row = fromRow; row < toRow; row++) {
+            int senderId = store.getSenderId(row);
+            int beneficiaryId = store.getBeneficiaryId(row);
+            if (senderId != TransactionColumnStore.NO_NAME) {
+                clients.addHash(nameHashes[senderId]);
+                senders.add(store.getName(senderId), store.getAmount(row));
+            }
+            if (beneficiaryId != TransactionColumnStore.NO_NAME) {
+                clients.addHash(nameHashes[beneficiaryId]);
+            }
+            amounts.add(store.getAmount(row));
+        }
+        return this;
+    }
+
+    /**
+     * Adds a transaction to the sketches, e.g. to sketch a feed without keeping it. Each MTN must be added once.
+     *
+     * @param transaction The transaction to add.
+     */
+    public void accept(Transaction transaction) {
+        if (transaction.getSenderFullName() != null) {
+            clients.add(transaction.getSenderFullName());
+            senders.add(transaction.getSenderFullName(), transaction.getAmount());
+        }
+        if (transaction.getBeneficiaryFullName() != null) {
+            clients.add(transaction.getBeneficiaryFullName());
+        }
+        amounts.add(transaction.getAmount());
+    }
+
+    /**
+     * Merges the sketches of other rows, built with the same settings, into this one.
+     *
+     * @param other The aggregates of other rows.
+     * @return This aggregates.
+     */
+    public ApproximateAggregates merge(ApproximateAggregates other) {
+        clients.merge(other.clients);
+        amounts.merge(other.amounts);
+        senders.merge(other.senders);
+        return this;
+    }
+
+    /**
+     * @return The estimated number of distinct senders and beneficiaries.
+     */
+    public long estimateUniqueClients() {
+        return clients.estimate();
+    }
+
+    /**
+     * @param quantile The quantile, between 0 and 1, e.g. 0.99 for the 99th percentile.
+     * @return The estimated transaction amount at the quantile, or 0.0 if there are no transactions.
+     */
+    public double estimateAmountQuantile(double quantile) {
+        double value = amounts.getQuantile(quantile);
+        return Double.isNaN(value) ? 0.0 : value;
+    }
+
+    /**
+     * @param k The number of senders to retrieve.
+     * @return At most k of the senders moving the highest amounts, highest estimate first.
+     */
+    public List<String> estimateTopSenders(int k) {
+        return senders.getTop(k);
+    }
+
+    HyperLogLog getClients() {
+        return clients;
+    }
+
+    QuantileSketch getAmounts() {
+        return amounts;
+    }
+
+    SpaceSaving getSenders() {
+        return senders;
+    }
+
+    /**
+     * Sketches a range of rows, splitting it in halves until the halves are small enough to run sequentially.
+     */
+    private static final class RangeTask extends RecursiveTask<ApproximateAggregates> {
+        private static final long serialVersionUID = 1L;
+
+        private final TransactionColumnStore store;
+        private final ApproximationSettings settings;
+        private final long[] nameHashes;
+        private final int fromRow;
+        private final int toRow;
+        private final int partitionSize;
+
+        private RangeTask(TransactionColumnStore store, ApproximationSettings settings, long[] nameHashes,
+                          int fromRow, int toRow, int partitionSize) {
+            this.store = store;
+            this.settings = settings;
+            this.nameHashes = nameHashes;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.partitionSize = partitionSize;
+        }
+
+        @Override
+        protected ApproximateAggregates compute() {
+            if (toRow - fromRow <= partitionSize) {
+                return new ApproximateAggregates(settings).acceptRange(store, nameHashes, fromRow, toRow);
+            }
+            int middle = (fromRow + toRow) >>> 1;
+            RangeTask left = new RangeTask(store, settings, nameHashes, fromRow, middle, partitionSize);
+            RangeTask right = new RangeTask(store, settings, nameHashes, middle, toRow, partitionSize);
+            left.fork();
+            ApproximateAggregates following = right.compute();
+            return left.join().merge(following);
+        }
+    }
+}
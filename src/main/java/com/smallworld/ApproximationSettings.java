@@ -0,0 +1,44 @@
+package com.smallworld;
+
+/**
+ * Error bounds of the sketches behind the approximate queries of {@link TransactionDataFetcher}. Each bound fixes the
+ * memory of its sketch, whatever the number of transactions.
+ */
+public final class ApproximationSettings {
+    /**
+     * 1% on distinct clients (16 KiB), 1% on amount quantiles and heavy hitters within 1% of the total amount.
+     */
+    public static final ApproximationSettings DEFAULT = new ApproximationSettings(0.01, 0.01, 0.01);
+
+    private final double clientsRelativeError;
+    private final double amountRelativeAccuracy;
+    private final double heavyHitterRelativeError;
+
+    /**
+     * @param clientsRelativeError     The standard error of the distinct client count, relative to the true count.
+     * @param amountRelativeAccuracy   The maximum error of an amount quantile, relative to the true amount.
+     * @param heavyHitterRelativeError The maximum overestimate of the amount sent by a sender, relative to the
+     *                                 total amount; senders above this share are never missed.
+     */
+    public ApproximationSettings(double clientsRelativeError, double amountRelativeAccuracy, double heavyHitterRelativeError) {
+        // Checked by the sketches, failing here rather than on the first query
+        HyperLogLog.withRelativeError(clientsRelativeError);
+        new QuantileSketch(amountRelativeAccuracy);
+        SpaceSaving.withRelativeError(heavyHitterRelativeError);
+        this.clientsRelativeError = clientsRelativeError;
+        this.amountRelativeAccuracy = amountRelativeAccuracy;
+        this.heavyHitterRelativeError = heavyHitterRelativeError;
+    }
+
+    public double getClientsRelativeError() {
+        return clientsRelativeError;
+    }
+
+    public double getAmountRelativeAccuracy() {
+        return amountRelativeAccuracy;
+    }
+
+    public double getHeavyHitterRelativeError() {
+        return heavyHitterRelativeError;
+    }
+}
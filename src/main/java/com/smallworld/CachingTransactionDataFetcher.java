@@ -0,0 +1,188 @@
+package com.smallworld;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Fetcher memoizing query results per query and parameters, so repeated queries become a map lookup. Only queries
+ * that build a result are cached; those the fetcher already answers with a lookup are not.
+ * <p>
+ * Results are tagged with the snapshot version they were computed from: as soon as the reader hands out a new
+ * snapshot every cached result is dropped. Each result weighs one plus the number of transactions, names or ids it
+ * holds; results are evicted least recently used first to keep the total weight within {@code maxWeight}, and a
+ * result heavier than that is never cached. Cached lists and maps are shared between callers and read-only.
+ */
+public class CachingTransactionDataFetcher extends TransactionDataFetcher {
+    private final long maxWeight;
+    // Access ordered, so iteration starts with the least recently used result
+    private final LinkedHashMap<QueryKey, CachedResult> results = new LinkedHashMap<>(16, 0.75f, true);
+    private long resultsWeight;
+    private long resultsVersion = -1;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingTransactionDataFetcher(TransactionDataReader reader, String filePath, long maxWeight) throws IOException {
+        this(reader, filePath, null, maxWeight);
+    }
+
+    /**
+     * @param reader    The reader providing the snapshots.
+     * @param filePath  The path of the file containing the transactions.
+     * @param pool      The pool running the aggregations, or null to run them on the calling thread.
+     * @param maxWeight The maximum total weight of the results kept, roughly the number of transactions, names and
+     *                  ids they hold.
+     */
+    public CachingTransactionDataFetcher(TransactionDataReader reader, String filePath, ForkJoinPool pool, long maxWeight) throws IOException {
+        super(reader, filePath, pool);
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("maxWeight must be positive: " + maxWeight);
+        }
+        this.maxWeight = maxWeight;
+    }
+
+    private <T> T cached(Supplier<T> query, ToLongFunction<T> size, String name, Object... parameters) {
+        // The version tag and the query read the same snapshot, which the reader is asked for once
+        return onOneSnapshot(() -> cachedOnSnapshot(query, size, name, parameters));
+    }
+
+    private <T> T cachedOnSnapshot(Supplier<T> query, ToLongFunction<T> size, String name, Object... parameters) {
+        long version = this.getSnapshotVersion();
+        QueryKey key = new QueryKey(name, parameters);
+        synchronized (results) {
+            if (resultsVersion != version) {
+                results.clear();
+                resultsWeight = 0;
+                resultsVersion = version;
+            }
+            CachedResult cached = results.get(key);
+            if (cached != null) {
+                hits.increment();
+                @SuppressWarnings("unchecked")
+                T result = (T) cached.result;
+                return result;
+            }
+        }
+        misses.increment();
+        // Computed outside the lock so a slow query does not hold up the others; racing misses compute twice
+        T result = query.get();
+        long weight = 1 + size.applyAsLong(result);
+        if (weight > maxWeight) {
+            return result;
+        }
+        synchronized (results) {
+            if (resultsVersion == version) {
+                CachedResult replaced = results.put(key, new CachedResult(result, weight));
+                resultsWeight += weight - (replaced == null ? 0 : replaced.weight);
+                Iterator<CachedResult> eldest = results.values().iterator();
+                while (resultsWeight > maxWeight) {
+                    resultsWeight -= eldest.next().weight;
+                    eldest.remove();
+                    evictions.increment();
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Transaction> getTransactionsSentBy(String senderFullName) {
+        return cached(() -> Collections.unmodifiableList(super.getTransactionsSentBy(senderFullName)), List::size, "transactionsSentBy", senderFullName);
+    }
+
+    @Override
+    public List<Transaction> getTransactionsReceivedBy(String beneficiaryFullName) {
+        return cached(() -> Collections.unmodifiableList(super.getTransactionsReceivedBy(beneficiaryFullName)), List::size, "transactionsReceivedBy", beneficiaryFullName);
+    }
+
+    @Override
+    public List<Transaction> getTopTransactionsByAmount(int k) {
+        return cached(() -> Collections.unmodifiableList(super.getTopTransactionsByAmount(k)), List::size, "topTransactionsByAmount", k);
+    }
+
+    @Override
+    public List<String> getTopSenders(int k) {
+        return cached(() -> Collections.unmodifiableList(super.getTopSenders(k)), List::size, "topSenders", k);
+    }
+
+    @Override
+    public TransactionSelection select(TransactionFilter filter) {
+        return cached(() -> super.select(filter), TransactionSelection::size, "select", filter);
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of results evicted to stay within the weight bound; results dropped because the snapshot
+     * changed are not counted.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return The number of results currently cached.
+     */
+    public int size() {
+        synchronized (results) {
+            return results.size();
+        }
+    }
+
+    /**
+     * @return The total weight of the results currently cached.
+     */
+    public long getWeight() {
+        synchronized (results) {
+            return resultsWeight;
+        }
+    }
+
+    private static final class CachedResult {
+        private final Object result;
+        private final long weight;
+
+        private CachedResult(Object result, long weight) {
+            this.result = result;
+            this.weight = weight;
+        }
+    }
+
+    private static final class QueryKey {
+        private final String name;
+        private final Object[] parameters;
+
+        private QueryKey(String name, Object[] parameters) {
+            this.name = name;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof QueryKey)) {
+                return false;
+            }
+            QueryKey key = (QueryKey) other;
+            return name.equals(key.name) && Arrays.equals(parameters, key.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + Arrays.hashCode(parameters);
+        }
+    }
+}
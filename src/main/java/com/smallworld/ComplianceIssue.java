@@ -0,0 +1,55 @@
+package com.smallworld;
+
+import java.util.Objects;
+
+/**
+ * Immutable state of a compliance issue on a transaction, as returned by {@link ComplianceIssueIndex}.
+ */
+public final class ComplianceIssue {
+    private final int issueId;
+    private final int mtn;
+    private final boolean solved;
+    private final String message;
+
+    ComplianceIssue(int issueId, int mtn, boolean solved, String message) {
+        this.issueId = issueId;
+        this.mtn = mtn;
+        this.solved = solved;
+        this.message = message;
+    }
+
+    public int getIssueId() {
+        return issueId;
+    }
+
+    public int getMtn() {
+        return mtn;
+    }
+
+    public boolean isSolved() {
+        return solved;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof ComplianceIssue)) {
+            return false;
+        }
+        ComplianceIssue issue = (ComplianceIssue) other;
+        return issueId == issue.issueId && mtn == issue.mtn && solved == issue.solved && Objects.equals(message, issue.message);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(issueId, mtn, solved, message);
+    }
+
+    @Override
+    public String toString() {
+        return "ComplianceIssue{issueId=" + issueId + ", mtn=" + mtn + ", solved=" + solved + ", message='" + message + "'}";
+    }
+}
@@ -0,0 +1,256 @@
+package com.smallworld;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable index of the compliance issues of a {@link TransactionColumnStore}, built once per snapshot in a pass
+ * over the issue side table so issue lookups never scan the rows again. It holds:
+ * <ul>
+ *   <li>the issues sorted by issue id, each pointing back to its row, so an issue id resolves by binary search;</li>
+ *   <li>the open issues of every client, sender or beneficiary, stored contiguously per name id;</li>
+ *   <li>a bitmap of the rows, one per MTN, carrying at least one open issue, and the row of every MTN.</li>
+ * </ul>
+ */
+public final class ComplianceIssueIndex {
+    private final TransactionColumnStore store;
+    // Row of every issue of the side table
+    private final int[] issueRows;
+    // Issues of the side table sorted by issue id, then by position
+    private final int[] issuesById;
+    private final int[] sortedIssueIds;
+    // The open issues of name id n are stored at positions [offsets[n], offsets[n + 1]) of the issues array
+    private final int[] openIssueOffsets;
+    private final int[] openIssues;
+    private final int[] openIssuesSent;
+    private final BitSet rowsWithOpenIssues = new BitSet();
+    private final IntIntHashMap rowsByMtn;
+
+    private ComplianceIssueIndex(TransactionColumnStore store) {
+        this.store = store;
+        int names = store.getNameCount();
+        this.issueRows = new int[store.getIssueCount()];
+        this.openIssueOffsets = new int[names + 1];
+        this.openIssuesSent = new int[names];
+        this.rowsByMtn = new IntIntHashMap(store.size());
+
+        for (int row = 0; row < store.size(); row++) {
+            rowsByMtn.put(store.getMtn(row), row);
+            int openCount = 0;
+            for (int issue = store.getIssueStart(row); issue < store.getIssueEnd(row); issue++) {
+                issueRows[issue] = row;
+                if (!store.isIssueSolved(issue)) {
+                    openCount++;
+                }
+            }
+            if (openCount > 0) {
+                rowsWithOpenIssues.set(row);
+                int senderId = store.getSenderId(row);
+                int beneficiaryId = store.getBeneficiaryId(row);
+                if (senderId != TransactionColumnStore.NO_NAME) {
+                    openIssueOffsets[senderId + 1] += openCount;
+                    openIssuesSent[senderId] += openCount;
+                }
+                // A client sending to themselves only counts the issues once
+                if (beneficiaryId != TransactionColumnStore.NO_NAME && beneficiaryId != senderId) {
+                    openIssueOffsets[beneficiaryId + 1] += openCount;
+                }
+            }
+        }
+        for (int id = 0; id < names; id++) {
+            openIssueOffsets[id + 1] += openIssueOffsets[id];
+        }
+
+        this.openIssues = new int[openIssueOffsets[names]];
+        int[] next = Arrays.copyOf(openIssueOffsets, names);
+        for (int row = rowsWithOpenIssues.nextSetBit(0); row >= 0; row = rowsWithOpenIssues.nextSetBit(row + 1)) {
+            int senderId = store.getSenderId(row);
+            int beneficiaryId = store.getBeneficiaryId(row);
+            for (int issue = store.getIssueStart(row); issue < store.getIssueEnd(row); issue++) {
+                if (!store.isIssueSolved(issue)) {
+                    if (senderId != TransactionColumnStore.NO_NAME) {
+                        openIssues[next[senderId]++] = issue;
+                    }
+                    if (beneficiaryId != TransactionColumnStore.NO_NAME && beneficiaryId != senderId) {
+                        openIssues[next[beneficiaryId]++] = issue;
+                    }
+                }
+            }
+        }
+
+        // Issue id in the high half and position in the low half, so sorting the keys sorts by id then position
+        long[] keys = new long[issueRows.length];
+        for (int issue = 0; issue < keys.length; issue++) {
+            keys[issue] = ((long) store.getIssueId(issue) << Integer.SIZE) | issue;
+        }
+        Arrays.sort(keys);
+        this.issuesById = new int[keys.length];
+        this.sortedIssueIds = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            issuesById[i] = (int) keys[i];
+            sortedIssueIds[i] = (int) (keys[i] >> Integer.SIZE);
+        }
+    }
+
+    /**
+     * Builds the index for the given store.
+     *
+     * @param store The store to index.
+     * @return The issue index of the store.
+     */
+    public static ComplianceIssueIndex of(TransactionColumnStore store) {
+        return new ComplianceIssueIndex(store);
+    }
+
+    /**
+     * @param issueId The id of the issue.
+     * @return The issue with this id on every transaction carrying it, usually one; empty if the id is unknown.
+     */
+    public List<ComplianceIssue> getIssues(int issueId) {
+        int first = firstIndexOf(issueId);
+        List<ComplianceIssue> issues = new ArrayList<>();
+        for (int i = first; i < sortedIssueIds.length && sortedIssueIds[i] == issueId; i++) {
+            issues.add(toIssue(issuesById[i]));
+        }
+        return issues;
+    }
+
+    /**
+     * @param mtn The MTN of the transaction.
+     * @return The issues of the transaction in file order; empty if it has none or the MTN is unknown.
+     */
+    public List<ComplianceIssue> getIssuesForMtn(int mtn) {
+        int row = rowsByMtn.get(mtn, -1);
+        if (row < 0) {
+            return List.of();
+        }
+        List<ComplianceIssue> issues = new ArrayList<>(store.getIssueEnd(row) - store.getIssueStart(row));
+        for (int issue = store.getIssueStart(row); issue < store.getIssueEnd(row); issue++) {
+            issues.add(toIssue(issue));
+        }
+        return issues;
+    }
+
+    /**
+     * @param mtn The MTN of the transaction.
+     * @return True if the transaction has at least one unsolved issue.
+     */
+    public boolean hasOpenIssues(int mtn) {
+        int row = rowsByMtn.get(mtn, -1);
+        return row >= 0 && rowsWithOpenIssues.get(row);
+    }
+
+    /**
+     * @param clientFullName The full name of the client.
+     * @return The unsolved issues on transactions the client sent or received, in row order.
+     */
+    public List<ComplianceIssue> getOpenIssues(String clientFullName) {
+        int clientId = store.getNameId(clientFullName);
+        if (clientId == TransactionColumnStore.NO_NAME) {
+            return List.of();
+        }
+        List<ComplianceIssue> issues = new ArrayList<>(openIssueOffsets[clientId + 1] - openIssueOffsets[clientId]);
+        for (int position = openIssueOffsets[clientId]; position < openIssueOffsets[clientId + 1]; position++) {
+            issues.add(toIssue(openIssues[position]));
+        }
+        return issues;
+    }
+
+    /**
+     * @param clientFullName The full name of the client.
+     * @return The number of open issues on transactions the client sent or received.
+     */
+    public int getOpenIssueCount(String clientFullName) {
+        int clientId = store.getNameId(clientFullName);
+        return clientId == TransactionColumnStore.NO_NAME ? 0 : openIssueOffsets[clientId + 1] - openIssueOffsets[clientId];
+    }
+
+    /**
+     * @param senderFullName The full name of the sender.
+     * @return The number of open issues on transactions the client sent, leaving out the ones it received.
+     */
+    public int getOpenIssueCountSentBy(String senderFullName) {
+        int senderId = store.getNameId(senderFullName);
+        return senderId == TransactionColumnStore.NO_NAME ? 0 : openIssuesSent[senderId];
+    }
+
+    /**
+     * Lists the clients with more than the given number of open issues, the most exposed first.
+     *
+     * @param threshold The number of open issues a client must exceed.
+     * @return The client names, by decreasing number of open issues, then by name.
+     */
+    public List<String> getClientsWithMoreOpenIssuesThan(int threshold) {
+        List<Integer> clientIds = new ArrayList<>();
+        for (int id = 0; id < store.getNameCount(); id++) {
+            if (openIssueOffsets[id + 1] - openIssueOffsets[id] > threshold) {
+                clientIds.add(id);
+            }
+        }
+        clientIds.sort((left, right) -> {
+            int result = Integer.compare(openIssueOffsets[right + 1] - openIssueOffsets[right], openIssueOffsets[left + 1] - openIssueOffsets[left]);
+            return result != 0 ? result : store.getName(left).compareTo(store.getName(right));
+        });
+        List<String> clients = new ArrayList<>(clientIds.size());
+        clientIds.forEach(id -> clients.add(store.getName(id)));
+        return clients;
+    }
+
+    /**
+     * @return The ids of the unsolved issues.
+     */
+    public Set<Integer> getUnsolvedIssueIds() {
+        Set<Integer> ids = new HashSet<>();
+        for (int row = rowsWithOpenIssues.nextSetBit(0); row >= 0; row = rowsWithOpenIssues.nextSetBit(row + 1)) {
+            for (int issue = store.getIssueStart(row); issue < store.getIssueEnd(row); issue++) {
+                if (!store.isIssueSolved(issue)) {
+                    ids.add(store.getIssueId(issue));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * @return The messages of the solved issues, grouped by MTN in the order the MTNs first appear in the file.
+     */
+    public List<String> getSolvedIssueMessages() {
+        List<String> messages = new ArrayList<>();
+        for (int issue = 0; issue < issueRows.length; issue++) {
+            if (store.isIssueSolved(issue) && store.getIssueMessage(issue) != null) {
+                messages.add(store.getIssueMessage(issue));
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * @return The number of transactions, one per MTN, with at least one unsolved issue.
+     */
+    public int getTransactionsWithOpenIssuesCount() {
+        return rowsWithOpenIssues.cardinality();
+    }
+
+    private int firstIndexOf(int issueId) {
+        int low = 0;
+        int high = sortedIssueIds.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedIssueIds[middle] < issueId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private ComplianceIssue toIssue(int issue) {
+        return new ComplianceIssue(store.getIssueId(issue), store.getMtn(issueRows[issue]), store.isIssueSolved(issue),
+                store.getIssueMessage(issue));
+    }
+}
@@ -0,0 +1,71 @@
+package com.smallworld;
+
+import java.util.Arrays;
+
+/**
+ * Accumulates doubles without rounding error and returns their correctly rounded sum (Shewchuk's algorithm, as used
+ * by Python's {@code math.fsum}). The result does not depend on the order in which values are added or partial sums
+ * are merged, which lets partitioned and sequential aggregations produce identical totals. Not thread-safe.
+ */
+final class ExactSum {
+    // Non-overlapping partial sums in increasing order of magnitude, their exact sum is the running total
+    private double[] partials = new double[4];
+    private int size;
+
+    void add(double value) {
+        double x = value;
+        int kept = 0;
+        for (int index = 0; index < size; index++) {
+            double y = partials[index];
+            if (Math.abs(x) < Math.abs(y)) {
+                double swap = x;
+                x = y;
+                y = swap;
+            }
+            double high = x + y;
+            double low = y - (high - x);
+            if (low != 0.0) {
+                partials[kept++] = low;
+            }
+            x = high;
+        }
+        if (kept == partials.length) {
+            partials = Arrays.copyOf(partials, kept * 2);
+        }
+        partials[kept] = x;
+        size = kept + 1;
+    }
+
+    void add(ExactSum other) {
+        for (int index = 0; index < other.size; index++) {
+            add(other.partials[index]);
+        }
+    }
+
+    double value() {
+        if (size == 0) {
+            return 0.0;
+        }
+        int index = size - 1;
+        double high = partials[index];
+        double low = 0.0;
+        while (index > 0) {
+            double x = high;
+            double y = partials[--index];
+            high = x + y;
+            low = y - (high - x);
+            if (low != 0.0) {
+                break;
+            }
+        }
+        // Round half to even when the remaining partials push the low part past the halfway point
+        if (index > 0 && ((low < 0.0 && partials[index - 1] < 0.0) || (low > 0.0 && partials[index - 1] > 0.0))) {
+            double y = low * 2.0;
+            double x = high + y;
+            if (y == x - high) {
+                high = x;
+            }
+        }
+        return high;
+    }
+}
@@ -0,0 +1,145 @@
+package com.smallworld;
+
+/**
+ * HyperLogLog sketch estimating the number of distinct strings added to it, e.g. client names, in a fixed
+ * {@code 2^precision} bytes whatever the number of strings. The standard error of the estimate is
+ * {@code 1.04 / sqrt(2^precision)}. Sketches of the same precision over different partitions merge into the sketch
+ * of their union with {@link #merge(HyperLogLog)}. Not thread-safe.
+ */
+public final class HyperLogLog {
+    static final int MIN_PRECISION = 4;
+    static final int MAX_PRECISION = 18;
+
+    private final int precision;
+    // Per register, the highest rank (position of the first 1 bit) of the hashes routed to it
+    private final byte[] registers;
+
+    /**
+     * @param precision The number of hash bits selecting a register, between 4 and 18.
+     */
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION + ": " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Creates the smallest sketch whose standard error does not exceed the given relative error.
+     *
+     * @param relativeError The standard error of the estimate, relative to the true count, e.g. 0.01 for 1%.
+     * @return An empty sketch.
+     * @throws IllegalArgumentException If the error is not between 0 and 1, or is below the error of the largest
+     *                                  sketch, about 0.2%.
+     */
+    public static HyperLogLog withRelativeError(double relativeError) {
+        if (!(relativeError > 0 && relativeError < 1)) {
+            throw new IllegalArgumentException("relativeError must be between 0 and 1: " + relativeError);
+        }
+        double registers = Math.pow(1.04 / relativeError, 2);
+        int precision = (int) Math.ceil(Math.log(registers) / Math.log(2));
+        if (precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("relativeError must be at least "
+                    + 1.04 / Math.sqrt(1 << MAX_PRECISION) + ": " + relativeError);
+        }
+        return new HyperLogLog(Math.max(MIN_PRECISION, precision));
+    }
+
+    public void add(String value) {
+        addHash(hash(value));
+    }
+
+    /**
+     * Adds a value by its 64-bit hash, which must spread its bits uniformly.
+     *
+     * @param hash The hash of the value.
+     */
+    public void addHash(long hash) {
+        int register = (int) (hash >>> (Long.SIZE - precision));
+        // The guard bit caps the rank once every remaining bit is zero
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (rank > registers[register]) {
+            registers[register] = (byte) rank;
+        }
+    }
+
+    /**
+     * Merges another sketch into this one, which then estimates the distinct values added to either.
+     *
+     * @param other A sketch of the same precision.
+     * @return This sketch.
+     */
+    public HyperLogLog merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches of precision " + precision + " and " + other.precision);
+        }
+        for (int register = 0; register < registers.length; register++) {
+            registers[register] = (byte) Math.max(registers[register], other.registers[register]);
+        }
+        return this;
+    }
+
+    /**
+     * @return The estimated number of distinct values added.
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += Math.scalb(1.0, -register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        // Small cardinalities leave registers empty, where linear counting is more accurate
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * @return The standard error of the estimate, relative to the true count.
+     */
+    public double getRelativeError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a over the characters, finished with the MurmurHash3 mixer so every output bit depends on every
+     * input bit. String.hashCode is too narrow: HyperLogLog needs 64 well spread bits.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
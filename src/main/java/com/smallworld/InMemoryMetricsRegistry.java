@@ -0,0 +1,47 @@
+package com.smallworld;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry keeping every metric in memory, read through {@link #snapshot()}. Recording is lock-free.
+ */
+public class InMemoryMetricsRegistry implements MetricsRegistry {
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void recordLatency(String name, long nanos) {
+        LatencyHistogram histogram = latencies.get(name);
+        if (histogram == null) {
+            histogram = latencies.computeIfAbsent(name, key -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    @Override
+    public void increment(String name, long delta) {
+        LongAdder counter = counters.get(name);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(name, key -> new LongAdder());
+        }
+        counter.add(delta);
+    }
+
+    @Override
+    public MetricsSnapshot snapshot() {
+        Map<String, Long> counterValues = new HashMap<>();
+        counters.forEach((name, counter) -> counterValues.put(name, counter.sum()));
+        Map<String, LatencySnapshot> latencyValues = new HashMap<>();
+        latencies.forEach((name, histogram) -> latencyValues.put(name, histogram.snapshot()));
+        return new MetricsSnapshot(counterValues, latencyValues);
+    }
+}
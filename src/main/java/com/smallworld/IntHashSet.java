@@ -0,0 +1,209 @@
+package com.smallworld;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Set of int keys (MTNs, issue ids) backed by a single open-addressing table with linear probing, so keys are never
+ * boxed: adding a key allocates nothing except when the table grows. Takes about 8 bytes per key at the default
+ * load factor, against some 50 bytes for a {@code HashSet<Integer>}.
+ * <p>
+ * Not thread-safe.
+ */
+public final class IntHashSet {
+    // Marks a free slot; the key 0 itself is tracked by a flag instead of occupying the table
+    private static final int FREE = 0;
+    private static final int DEFAULT_CAPACITY = 16;
+    // Kept at most half full so probe sequences stay short
+    private static final int MAX_LOAD_PERCENT = 50;
+    // Largest power of two an array can hold
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private int[] keys;
+    private int mask;
+    private int size;
+    private boolean containsFree;
+
+    public IntHashSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize The number of keys the set should hold without growing.
+     */
+    public IntHashSet(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("expectedSize must not be negative: " + expectedSize);
+        }
+        allocate(tableSize(expectedSize));
+    }
+
+    /**
+     * Adds a key to the set.
+     *
+     * @param key The key to add.
+     * @return True if the key was not in the set yet.
+     */
+    public boolean add(int key) {
+        if (key == FREE) {
+            if (containsFree) {
+                return false;
+            }
+            containsFree = true;
+            size++;
+            return true;
+        }
+        int slot = slot(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        // In long, since the product overflows an int from 2^26 slots on
+        if ((long) ++size * 100 > (long) keys.length * MAX_LOAD_PERCENT) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * Adds every key of another set to this one.
+     *
+     * @param other The set whose keys to add.
+     */
+    public void addAll(IntHashSet other) {
+        other.forEach(this::add);
+    }
+
+    public boolean contains(int key) {
+        if (key == FREE) {
+            return containsFree;
+        }
+        int slot = slot(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Removes a key from the set, shifting back the keys probed past it so no tombstone is left behind.
+     *
+     * @param key The key to remove.
+     * @return True if the key was in the set.
+     */
+    public boolean remove(int key) {
+        if (key == FREE) {
+            if (!containsFree) {
+                return false;
+            }
+            containsFree = false;
+            size--;
+            return true;
+        }
+        int slot = slot(key);
+        while (keys[slot] != key) {
+            if (keys[slot] == FREE) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != FREE; next = (next + 1) & mask) {
+            // A key may fill the gap only if its home slot does not lie cyclically within (gap, next]
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                gap = next;
+            }
+        }
+        keys[gap] = FREE;
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every key, keeping the table so the set can be reused without allocating.
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        containsFree = false;
+        size = 0;
+    }
+
+    /**
+     * Hands every key to the action, in no particular order.
+     *
+     * @param action The action receiving the keys.
+     */
+    public void forEach(IntConsumer action) {
+        if (containsFree) {
+            action.accept(FREE);
+        }
+        for (int key : keys) {
+            if (key != FREE) {
+                action.accept(key);
+            }
+        }
+    }
+
+    /**
+     * @return A new boxed set holding the same keys, for callers expecting a {@link Set}.
+     */
+    public Set<Integer> toSet() {
+        Set<Integer> set = new HashSet<>(size * 2);
+        forEach(set::add);
+        return set;
+    }
+
+    private int slot(int key) {
+        // Sequential MTNs land in neighbouring slots, keeping probes in cache; the high bits are folded in like HashMap
+        return (key ^ key >>> 16) & mask;
+    }
+
+    private void grow() {
+        if (keys.length == MAX_CAPACITY) {
+            throw new IllegalStateException("IntHashSet cannot hold more than " + (long) MAX_CAPACITY * MAX_LOAD_PERCENT / 100 + " keys");
+        }
+        rehash(keys.length * 2);
+    }
+
+    private void rehash(int capacity) {
+        int[] previous = keys;
+        allocate(capacity);
+        for (int key : previous) {
+            if (key != FREE) {
+                int slot = slot(key);
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int tableSize(int expectedSize) {
+        long required = Math.max(DEFAULT_CAPACITY, (long) expectedSize * 100 / MAX_LOAD_PERCENT + 1);
+        return (int) Math.min(MAX_CAPACITY, Long.highestOneBit(required - 1) << 1);
+    }
+}
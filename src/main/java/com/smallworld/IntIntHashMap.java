@@ -0,0 +1,108 @@
+package com.smallworld;
+
+/**
+ * Map from int keys to int values with the same open-addressing layout as {@link IntHashSet}, e.g. to find the row
+ * of an MTN without boxing either. Entries cannot be removed. Not thread-safe.
+ */
+final class IntIntHashMap {
+    private static final int FREE = 0;
+    private static final int MAX_LOAD_PERCENT = 50;
+    // Largest power of two an array can hold
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private boolean containsFree;
+    private int freeValue;
+
+    IntIntHashMap(int expectedSize) {
+        long required = Math.max(16, (long) expectedSize * 100 / MAX_LOAD_PERCENT + 1);
+        allocate((int) Math.min(MAX_CAPACITY, Long.highestOneBit(required - 1) << 1));
+    }
+
+    /**
+     * @param key     The key to look up.
+     * @param missing The value returned when the key is absent.
+     * @return The value of the key, or {@code missing}.
+     */
+    int get(int key, int missing) {
+        if (key == FREE) {
+            return containsFree ? freeValue : missing;
+        }
+        int slot = slot(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return missing;
+    }
+
+    /**
+     * Associates a value with a key, replacing its previous value if any.
+     */
+    void put(int key, int value) {
+        if (key == FREE) {
+            if (!containsFree) {
+                containsFree = true;
+                size++;
+            }
+            freeValue = value;
+            return;
+        }
+        int slot = slot(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        // In long, since the product overflows an int from 2^26 slots on
+        if ((long) ++size * 100 > (long) keys.length * MAX_LOAD_PERCENT) {
+            grow();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int slot(int key) {
+        return (key ^ key >>> 16) & mask;
+    }
+
+    private void grow() {
+        if (keys.length == MAX_CAPACITY) {
+            throw new IllegalStateException("IntIntHashMap cannot hold more than " + (long) MAX_CAPACITY * MAX_LOAD_PERCENT / 100 + " keys");
+        }
+        rehash(keys.length * 2);
+    }
+
+    private void rehash(int capacity) {
+        int[] previousKeys = keys;
+        int[] previousValues = values;
+        allocate(capacity);
+        for (int i = 0; i < previousKeys.length; i++) {
+            if (previousKeys[i] != FREE) {
+                int slot = slot(previousKeys[i]);
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = previousKeys[i];
+                values[slot] = previousValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+}
@@ -0,0 +1,64 @@
+package com.smallworld;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Deserializes string fields of {@link Transaction} into the canonical instances of a {@link StringDictionary}
+ * handed over as an attribute of the reader, so repeated names and messages are resolved straight from the parser's
+ * character buffer instead of allocating a new string per row. Without the attribute, strings are read as usual.
+ */
+public class InterningStringDeserializer extends StdScalarDeserializer<String> {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Reader attributes holding the dictionaries, see {@link com.fasterxml.jackson.databind.ObjectReader#withAttribute}.
+     */
+    enum Dictionary {
+        NAMES,
+        MESSAGES
+    }
+
+    private final Dictionary dictionary;
+
+    private InterningStringDeserializer(Dictionary dictionary) {
+        super(String.class);
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public String deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        StringDictionary strings = (StringDictionary) context.getAttribute(dictionary);
+        if (strings == null || !parser.hasToken(JsonToken.VALUE_STRING)) {
+            return StringDeserializer.instance.deserialize(parser, context);
+        }
+        return strings.intern(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+    }
+
+    /**
+     * Interns sender and beneficiary names.
+     */
+    public static final class Names extends InterningStringDeserializer {
+        private static final long serialVersionUID = 1L;
+
+        public Names() {
+            super(Dictionary.NAMES);
+        }
+    }
+
+    /**
+     * Interns issue messages.
+     */
+    public static final class Messages extends InterningStringDeserializer {
+        private static final long serialVersionUID = 1L;
+
+        public Messages() {
+            super(Dictionary.MESSAGES);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.smallworld;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+/**
+ * In-memory registry also published as an MXBean on the platform MBean server, so JConsole, VisualVM or any JMX
+ * exporter can read the counters and latency summaries.
+ */
+public class JmxMetricsRegistry extends InMemoryMetricsRegistry implements AutoCloseable {
+    /** Object name used by {@link #register()}. */
+    public static final String DEFAULT_OBJECT_NAME = "com.smallworld:type=TransactionMetrics";
+
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    private final ObjectName objectName;
+
+    private JmxMetricsRegistry(ObjectName objectName) {
+        this.objectName = objectName;
+    }
+
+    /**
+     * Creates a registry published under {@link #DEFAULT_OBJECT_NAME}.
+     *
+     * @return The registered registry.
+     * @throws JMException If the name is malformed or already registered.
+     */
+    public static JmxMetricsRegistry register() throws JMException {
+        return register(DEFAULT_OBJECT_NAME);
+    }
+
+    /**
+     * Creates a registry published under the given object name.
+     *
+     * @param objectName The JMX object name, e.g. {@code com.smallworld:type=TransactionMetrics,name=primary}.
+     * @return The registered registry.
+     * @throws JMException If the name is malformed or already registered.
+     */
+    public static JmxMetricsRegistry register(String objectName) throws JMException {
+        JmxMetricsRegistry registry = new JmxMetricsRegistry(new ObjectName(objectName));
+        registry.server.registerMBean(new View(registry), registry.objectName);
+        return registry;
+    }
+
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    /**
+     * Removes the MXBean from the platform MBean server; metrics can still be recorded and read in memory.
+     */
+    @Override
+    public void close() throws JMException {
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+    }
+
+    /**
+     * Attributes published over JMX, each read from a fresh snapshot.
+     */
+    public interface TransactionMetricsMXBean {
+        Map<String, Long> getCounters();
+
+        Map<String, LatencySnapshot> getLatencies();
+    }
+
+    private static final class View implements TransactionMetricsMXBean {
+        private final MetricsRegistry registry;
+
+        private View(MetricsRegistry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public Map<String, Long> getCounters() {
+            return registry.snapshot().getCounters();
+        }
+
+        @Override
+        public Map<String, LatencySnapshot> getLatencies() {
+            return registry.snapshot().getLatencies();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.smallworld;
+
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe memoizing supplier: the delegate runs at most once, on the first call to {@link #get()}.
+ */
+final class Lazy<T> implements Supplier<T> {
+    private Supplier<? extends T> delegate;
+    private volatile T value;
+
+    Lazy(Supplier<? extends T> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public T get() {
+        T result = value;
+        if (result == null) {
+            synchronized (this) {
+                result = value;
+                if (result == null) {
+                    result = delegate.get();
+                    value = result;
+                    // Let the delegate and whatever it captured be collected
+                    delegate = null;
+                }
+            }
+        }
+        return result;
+    }
+}
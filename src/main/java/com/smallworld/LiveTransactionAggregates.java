@@ -0,0 +1,167 @@
+package com.smallworld;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Running aggregates over an append-only feed of transactions, updated in O(1) amortized time per record.
+ * <p>
+ * Amount based aggregates consider the first row of every MTN (Mobile Transaction Number), like
+ * {@link TransactionDataFetcher}. Issue state follows the latest row seen for each issue id, so a row marking a
+ * previously open issue as solved closes it. All methods are thread-safe; appends and queries may run concurrently.
+ */
+public class LiveTransactionAggregates {
+    private final IntHashSet uniqueMtns = new IntHashSet();
+    private final ExactSum totalAmount = new ExactSum();
+    private double maxAmount;
+    private final Map<String, Double> totalAmountsBySender = new HashMap<>();
+    private final Set<String> clients = new HashSet<>();
+    private final Map<Integer, IssueState> issues = new HashMap<>();
+    private final IntHashSet unsolvedIssueIds = new IntHashSet();
+    private final Map<String, Integer> openIssueCounts = new HashMap<>();
+    // Serializes tailing so every record of the file is ingested exactly once
+    private final Object tailLock = new Object();
+    // Position in the tailed file after the last complete record ingested
+    private long tailPosition;
+
+    /**
+     * Creates aggregates seeded with the given transactions, e.g. the current snapshot of a fetcher.
+     *
+     * @param transactions The transactions already known.
+     * @return The aggregates of the given transactions.
+     */
+    public static LiveTransactionAggregates of(Iterable<Transaction> transactions) {
+        LiveTransactionAggregates aggregates = new LiveTransactionAggregates();
+        transactions.forEach(aggregates::append);
+        return aggregates;
+    }
+
+    /**
+     * Adds a transaction row to the aggregates.
+     *
+     * @param transaction The new row; it may repeat the MTN of a previous row to add or update one of its issues.
+     */
+    public synchronized void append(Transaction transaction) {
+        addClient(transaction.getSenderFullName());
+        addClient(transaction.getBeneficiaryFullName());
+
+        if (uniqueMtns.add(transaction.getMtn())) {
+            double amount = transaction.getAmount();
+            maxAmount = uniqueMtns.size() == 1 ? amount : Math.max(maxAmount, amount);
+            totalAmount.add(amount);
+            totalAmountsBySender.merge(transaction.getSenderFullName(), amount, Double::sum);
+        }
+
+        if (transaction.hasIssue()) {
+            updateIssue(transaction);
+        }
+    }
+
+    private void addClient(String clientFullName) {
+        if (clientFullName != null) {
+            clients.add(clientFullName);
+        }
+    }
+
+    private void updateIssue(Transaction transaction) {
+        IssueState current = new IssueState(transaction.hasOpenIssue(), transaction.getSenderFullName(), transaction.getBeneficiaryFullName());
+        IssueState previous = issues.put(transaction.getIssueId(), current);
+        if (previous != null && previous.open) {
+            unsolvedIssueIds.remove(transaction.getIssueId());
+            previous.forEachClient(this::decrementOpenIssues);
+        }
+        if (current.open) {
+            unsolvedIssueIds.add(transaction.getIssueId());
+            current.forEachClient(client -> openIssueCounts.merge(client, 1, Integer::sum));
+        }
+    }
+
+    private void decrementOpenIssues(String clientFullName) {
+        // Clients without open issues are removed so the map only ever holds clients with open issues
+        openIssueCounts.computeIfPresent(clientFullName, (client, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * Ingests the records appended to a newline-delimited JSON file since the previous call, starting from the
+     * beginning of the file on the first call. Incomplete trailing lines are left for the next call.
+     *
+     * @param reader   The reader parsing the file.
+     * @param filePath The path of the NDJSON file being appended to.
+     * @return The number of records ingested.
+     * @throws IOException If the file cannot be read.
+     */
+    public int tail(TransactionDataReader reader, String filePath) throws IOException {
+        synchronized (tailLock) {
+            int[] ingested = {0};
+            tailPosition = reader.readAppendedTransactions(filePath, tailPosition, transaction -> {
+                append(transaction);
+                ingested[0]++;
+            });
+            return ingested[0];
+        }
+    }
+
+    public synchronized double getTotalTransactionAmount() {
+        return totalAmount.value();
+    }
+
+    public synchronized double getTotalTransactionAmountSentBy(String senderFullName) {
+        return totalAmountsBySender.getOrDefault(senderFullName, 0.0);
+    }
+
+    public synchronized double getMaxTransactionAmount() {
+        return maxAmount;
+    }
+
+    public synchronized long countUniqueClients() {
+        return clients.size();
+    }
+
+    public synchronized boolean hasOpenComplianceIssues(String clientFullName) {
+        return openIssueCounts.containsKey(clientFullName);
+    }
+
+    public synchronized int countOpenComplianceIssues(String clientFullName) {
+        return openIssueCounts.getOrDefault(clientFullName, 0);
+    }
+
+    /**
+     * @return A copy of the ids of the issues whose latest row is unsolved.
+     */
+    public synchronized Set<Integer> getUnsolvedIssueIds() {
+        return unsolvedIssueIds.toSet();
+    }
+
+    /**
+     * @return The number of distinct MTNs ingested so far.
+     */
+    public synchronized int getTransactionCount() {
+        return uniqueMtns.size();
+    }
+
+    private static final class IssueState {
+        private final boolean open;
+        private final String senderFullName;
+        private final String beneficiaryFullName;
+
+        private IssueState(boolean open, String senderFullName, String beneficiaryFullName) {
+            this.open = open;
+            this.senderFullName = senderFullName;
+            this.beneficiaryFullName = beneficiaryFullName;
+        }
+
+        private void forEachClient(Consumer<String> action) {
+            if (senderFullName != null) {
+                action.accept(senderFullName);
+            }
+            // A client sending to themselves only counts the issue once
+            if (beneficiaryFullName != null && !beneficiaryFullName.equals(senderFullName)) {
+                action.accept(beneficiaryFullName);
+            }
+        }
+    }
+}
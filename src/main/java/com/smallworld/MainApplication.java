@@ -5,9 +5,14 @@ import java.util.List;
 import java.util.Optional;
 
 public class MainApplication {
+    private static final int DEFAULT_PORT = 8080;
 
     public static void main(String[] args) throws IOException {
         TransactionDataFetcher dataFetcher = new TransactionDataFetcher(new TransactionDataReader());
+        if (args.length > 0 && "serve".equals(args[0])) {
+            serve(dataFetcher, args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT);
+            return;
+        }
 
         printTotalTransactionAmount(dataFetcher);
         printTotalAmountSentBy(dataFetcher, "Aunt Polly");
@@ -21,6 +26,20 @@ public class MainApplication {
         printTopSender(dataFetcher);
     }
 
+    /**
+     * Serves the queries over HTTP until the process is stopped.
+     */
+    private static void serve(TransactionDataFetcher dataFetcher, int port) throws IOException {
+        TransactionQueryService service = new TransactionQueryService(dataFetcher);
+        TransactionHttpServer server = TransactionHttpServer.start(service, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            service.close();
+        }));
+        System.out.println("Serving transaction queries on http://localhost:" + server.getPort()
+                + (service.usesVirtualThreads() ? " with virtual threads" : " with platform threads"));
+    }
+
     private static void printTotalTransactionAmount(TransactionDataFetcher dataFetcher) {
         System.out.println("Total Transaction Amount: " + dataFetcher.getTotalTransactionAmount());
     }
@@ -0,0 +1,76 @@
+package com.smallworld;
+
+/**
+ * Pluggable sink for the latency and counter metrics recorded by {@link TransactionDataReader} and
+ * {@link TransactionDataFetcher}. Metric names are dot separated, e.g. {@code fetcher.getTopSender}.
+ * <p>
+ * Instrumented code only reads the clock when {@link #isEnabled()} is true, so the default {@link #NOOP} registry
+ * costs a predictable branch per call. Implementations must be thread-safe.
+ */
+public interface MetricsRegistry {
+
+    /**
+     * Registry discarding everything, the default of the reader and the fetcher.
+     */
+    MetricsRegistry NOOP = new MetricsRegistry() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public void recordLatency(String name, long nanos) {
+        }
+
+        @Override
+        public void increment(String name, long delta) {
+        }
+
+        @Override
+        public MetricsSnapshot snapshot() {
+            return MetricsSnapshot.EMPTY;
+        }
+    };
+
+    boolean isEnabled();
+
+    /**
+     * Adds a latency to the histogram of the given name.
+     *
+     * @param name  The name of the histogram.
+     * @param nanos The latency, in nanoseconds.
+     */
+    void recordLatency(String name, long nanos);
+
+    /**
+     * Adds a value to the counter of the given name.
+     *
+     * @param name  The name of the counter.
+     * @param delta The value to add.
+     */
+    void increment(String name, long delta);
+
+    /**
+     * @return A point-in-time copy of every metric recorded so far.
+     */
+    MetricsSnapshot snapshot();
+
+    /**
+     * @return The start time to hand to {@link #stopTimer(String, long)}, or 0 without reading the clock when disabled.
+     */
+    default long startTimer() {
+        return isEnabled() ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records the time elapsed since {@link #startTimer()} in the histogram of the given name.
+     *
+     * @param name       The name of the histogram.
+     * @param startNanos The value returned by {@link #startTimer()}.
+     */
+    default void stopTimer(String name, long startNanos) {
+        if (isEnabled()) {
+            recordLatency(name, System.nanoTime() - startNanos);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.smallworld;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable, point-in-time copy of the metrics of a {@link MetricsRegistry}, sorted by name.
+ */
+public final class MetricsSnapshot {
+    static final MetricsSnapshot EMPTY = new MetricsSnapshot(Map.of(), Map.of());
+
+    private final Map<String, Long> counters;
+    private final Map<String, LatencySnapshot> latencies;
+
+    MetricsSnapshot(Map<String, Long> counters, Map<String, LatencySnapshot> latencies) {
+        this.counters = Collections.unmodifiableMap(new TreeMap<>(counters));
+        this.latencies = Collections.unmodifiableMap(new TreeMap<>(latencies));
+    }
+
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    public Map<String, LatencySnapshot> getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * @return The value of the counter, or 0 if nothing was recorded under that name.
+     */
+    public long getCounter(String name) {
+        return counters.getOrDefault(name, 0L);
+    }
+
+    /**
+     * @return The latencies recorded under that name, or null if there are none.
+     */
+    public LatencySnapshot getLatency(String name) {
+        return latencies.get(name);
+    }
+
+    /**
+     * Derives a throughput from a counter and the total time of a latency histogram, e.g. records loaded per second
+     * from {@code reader.records} and {@code reader.load}.
+     *
+     * @param counterName The counter holding the amount of work done.
+     * @param latencyName The histogram timing that work.
+     * @return The amount of work per second, or 0.0 if no time was recorded.
+     */
+    public double getRatePerSecond(String counterName, String latencyName) {
+        LatencySnapshot latency = latencies.get(latencyName);
+        if (latency == null || latency.getTotalNanos() == 0) {
+            return 0.0;
+        }
+        return getCounter(counterName) * 1e9 / latency.getTotalNanos();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        counters.forEach((name, value) -> text.append(name).append(' ').append(value).append(System.lineSeparator()));
+        latencies.forEach((name, value) -> text.append(name).append(' ').append(value).append(System.lineSeparator()));
+        return text.toString();
+    }
+}
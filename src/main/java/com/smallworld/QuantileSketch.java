@@ -0,0 +1,192 @@
+package com.smallworld;
+
+/**
+ * Mergeable quantile sketch with a relative accuracy guarantee (DDSketch): values are counted in logarithmic
+ * buckets, so every quantile is returned within {@code relativeAccuracy} of a value actually at that rank. Memory
+ * is bounded by {@code maxBuckets} per sign whatever the number of values; past it the lowest buckets are collapsed,
+ * which only degrades the lowest quantiles. Sketches with the same accuracy merge exactly with
+ * {@link #merge(QuantileSketch)}. Not thread-safe.
+ */
+public final class QuantileSketch {
+    public static final int DEFAULT_MAX_BUCKETS = 2048;
+
+    private final double relativeAccuracy;
+    private final double logGamma;
+    private final int maxBuckets;
+    private final Buckets positive = new Buckets();
+    // Negative values are bucketed by magnitude
+    private final Buckets negative = new Buckets();
+    private long zeroCount;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public QuantileSketch(double relativeAccuracy) {
+        this(relativeAccuracy, DEFAULT_MAX_BUCKETS);
+    }
+
+    /**
+     * @param relativeAccuracy The maximum error of a quantile, relative to the true value, e.g. 0.01 for 1%.
+     * @param maxBuckets       The maximum number of buckets kept per sign.
+     */
+    public QuantileSketch(double relativeAccuracy, int maxBuckets) {
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+            throw new IllegalArgumentException("relativeAccuracy must be between 0 and 1: " + relativeAccuracy);
+        }
+        if (maxBuckets <= 0) {
+            throw new IllegalArgumentException("maxBuckets must be positive: " + maxBuckets);
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.logGamma = Math.log((1 + relativeAccuracy) / (1 - relativeAccuracy));
+        this.maxBuckets = maxBuckets;
+    }
+
+    public void add(double value) {
+        if (value > Double.MIN_NORMAL) {
+            positive.add(index(value), 1, maxBuckets);
+        } else if (value < -Double.MIN_NORMAL) {
+            negative.add(index(-value), 1, maxBuckets);
+        } else {
+            zeroCount++;
+        }
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Merges another sketch into this one, which then summarizes the values added to either.
+     *
+     * @param other A sketch with the same relative accuracy.
+     * @return This sketch.
+     */
+    public QuantileSketch merge(QuantileSketch other) {
+        if (Double.compare(other.relativeAccuracy, relativeAccuracy) != 0) {
+            throw new IllegalArgumentException("Cannot merge sketches of accuracy " + relativeAccuracy + " and " + other.relativeAccuracy);
+        }
+        positive.addAll(other.positive, maxBuckets);
+        negative.addAll(other.negative, maxBuckets);
+        zeroCount += other.zeroCount;
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    /**
+     * Estimates the value at the given quantile, e.g. 0.99 for the 99th percentile.
+     *
+     * @param quantile The quantile, between 0 and 1.
+     * @return The estimated value, or NaN if no value was added.
+     */
+    public double getQuantile(double quantile) {
+        if (!(quantile >= 0 && quantile <= 1)) {
+            throw new IllegalArgumentException("quantile must be between 0 and 1: " + quantile);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) (quantile * (count - 1));
+        // The extreme values are known exactly
+        if (rank == 0) {
+            return min;
+        }
+        if (rank == count - 1) {
+            return max;
+        }
+        double value;
+        if (rank < negative.total) {
+            // Negative values rank in decreasing order of magnitude
+            value = -value(negative.indexAtRank(negative.total - 1 - rank));
+        } else if (rank < negative.total + zeroCount) {
+            value = 0.0;
+        } else {
+            value = value(positive.indexAtRank(rank - negative.total - zeroCount));
+        }
+        // The bucket midpoint may lie past the extreme values
+        return Math.max(min, Math.min(max, value));
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    private int index(double magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) / logGamma);
+    }
+
+    /**
+     * @return The value representing a bucket: within the relative accuracy of every value of the bucket.
+     */
+    private double value(int index) {
+        return 2 * Math.exp(index * logGamma) / (1 + Math.exp(logGamma));
+    }
+
+    /**
+     * Dense counts of consecutive bucket indexes.
+     */
+    private static final class Buckets {
+        private long[] counts = new long[0];
+        // Bucket index of counts[0]
+        private int offset;
+        private long total;
+
+        void add(int index, long count, int maxBuckets) {
+            total += count;
+            if (counts.length == 0) {
+                counts = new long[Math.min(maxBuckets, 64)];
+                offset = index;
+            }
+            index = Math.max(index, fit(index, maxBuckets));
+            counts[index - offset] += count;
+        }
+
+        void addAll(Buckets other, int maxBuckets) {
+            for (int i = 0; i < other.counts.length; i++) {
+                if (other.counts[i] != 0) {
+                    add(other.offset + i, other.counts[i], maxBuckets);
+                }
+            }
+        }
+
+        /**
+         * Grows the array to cover the index, collapsing the lowest buckets if the span would exceed maxBuckets.
+         *
+         * @return The lowest index kept, into which lower indexes are counted.
+         */
+        private int fit(int index, int maxBuckets) {
+            int low = Math.min(offset, index);
+            int high = Math.max(offset + counts.length - 1, index);
+            if (low == offset && high < offset + counts.length) {
+                return offset;
+            }
+            if (high - low + 1 > maxBuckets) {
+                low = high - maxBuckets + 1;
+            }
+            // Room above the highest index lets the array grow upwards without copying every time
+            int length = Math.min(maxBuckets, Math.max(high - low + 1, counts.length * 2));
+            long[] resized = new long[length];
+            for (int i = 0; i < counts.length; i++) {
+                resized[Math.max(offset + i, low) - low] += counts[i];
+            }
+            counts = resized;
+            offset = low;
+            return low;
+        }
+
+        int indexAtRank(long rank) {
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen > rank) {
+                    return offset + i;
+                }
+            }
+            return offset + counts.length - 1;
+        }
+    }
+}
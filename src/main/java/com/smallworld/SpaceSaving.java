@@ -0,0 +1,216 @@
+package com.smallworld;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Weighted Space-Saving sketch tracking the heaviest keys of a stream, e.g. the senders moving the highest amounts,
+ * with at most {@code capacity} counters whatever the number of distinct keys. Every key whose weight exceeds
+ * {@code total / capacity} is guaranteed to be tracked, and a tracked key's count overestimates its weight by at most
+ * its recorded error. Sketches over different partitions merge with {@link #merge(SpaceSaving)}. Not thread-safe.
+ */
+public final class SpaceSaving {
+    private final int capacity;
+    // Binary min-heap on counts, so the counter to recycle is always at the root
+    private final String[] keys;
+    private final double[] counts;
+    private final double[] errors;
+    private final Map<String, Integer> positions;
+    private int size;
+    private double total;
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.keys = new String[capacity];
+        this.counts = new double[capacity];
+        this.errors = new double[capacity];
+        this.positions = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Creates the smallest sketch whose overestimate never exceeds the given fraction of the total weight.
+     *
+     * @param relativeError The maximum overestimate of a count, relative to the total weight, e.g. 0.01 for 1%.
+     * @return An empty sketch.
+     */
+    public static SpaceSaving withRelativeError(double relativeError) {
+        if (!(relativeError > 0 && relativeError < 1)) {
+            throw new IllegalArgumentException("relativeError must be between 0 and 1: " + relativeError);
+        }
+        return new SpaceSaving((int) Math.ceil(1 / relativeError));
+    }
+
+    /**
+     * Adds weight to a key, recycling the counter of the lightest key if every counter is taken.
+     *
+     * @param key    The key.
+     * @param weight The weight to add, not negative.
+     */
+    public void add(String key, double weight) {
+        add(key, weight, 0);
+    }
+
+    private void add(String key, double weight, double error) {
+        total += weight;
+        Integer position = positions.get(key);
+        if (position != null) {
+            counts[position] += weight;
+            errors[position] += error;
+            siftDown(position);
+        } else if (size < capacity) {
+            keys[size] = key;
+            counts[size] = weight;
+            errors[size] = error;
+            positions.put(key, size);
+            siftUp(size++);
+        } else {
+            // The new key may have been counted by the recycled counter, whose count becomes its error bound
+            positions.remove(keys[0]);
+            keys[0] = key;
+            errors[0] = counts[0] + error;
+            counts[0] += weight;
+            positions.put(key, 0);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Merges another sketch into this one. A key tracked by only one of the sketches is credited with the smallest
+     * count of the other one if that one is full, as an upper bound of what it may have missed.
+     *
+     * @param other The sketch to merge.
+     * @return This sketch.
+     */
+    public SpaceSaving merge(SpaceSaving other) {
+        double thisFloor = size == capacity ? counts[0] : 0;
+        double otherFloor = other.size == other.capacity ? other.counts[0] : 0;
+        Map<String, double[]> merged = new HashMap<>((size + other.size) * 2);
+        for (int i = 0; i < size; i++) {
+            merged.put(keys[i], new double[]{counts[i] + otherFloor, errors[i] + otherFloor});
+        }
+        for (int i = 0; i < other.size; i++) {
+            double[] entry = merged.get(other.keys[i]);
+            if (entry == null) {
+                merged.put(other.keys[i], new double[]{other.counts[i] + thisFloor, other.errors[i] + thisFloor});
+            } else {
+                entry[0] += other.counts[i] - otherFloor;
+                entry[1] += other.errors[i] - otherFloor;
+            }
+        }
+        double mergedTotal = total + other.total;
+        // Keep the heaviest counters; the lighter ones are dropped like recycled counters
+        List<Map.Entry<String, double[]>> entries = new ArrayList<>(merged.entrySet());
+        entries.sort((left, right) -> Double.compare(right.getValue()[0], left.getValue()[0]));
+        clear();
+        for (Map.Entry<String, double[]> entry : entries.subList(0, Math.min(capacity, entries.size()))) {
+            add(entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+        }
+        total = mergedTotal;
+        return this;
+    }
+
+    /**
+     * Retrieves the tracked keys with the highest counts. Ties are broken by key so the result is deterministic.
+     *
+     * @param k The number of keys to retrieve.
+     * @return At most k keys, highest count first.
+     */
+    public List<String> getTop(int k) {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (left, right) -> {
+            int result = Double.compare(counts[right], counts[left]);
+            return result != 0 ? result : keys[left].compareTo(keys[right]);
+        });
+        List<String> top = new ArrayList<>(Math.min(k, size));
+        for (int i = 0; i < Math.min(k, size); i++) {
+            top.add(keys[order[i]]);
+        }
+        return top;
+    }
+
+    /**
+     * @param key The key.
+     * @return The estimated weight of the key, an upper bound of its true weight, or 0.0 if it is not tracked.
+     */
+    public double getCount(String key) {
+        Integer position = positions.get(key);
+        return position == null ? 0.0 : counts[position];
+    }
+
+    /**
+     * @param key The key.
+     * @return The maximum overestimate of the count of the key, or 0.0 if it is not tracked.
+     */
+    public double getError(String key) {
+        Integer position = positions.get(key);
+        return position == null ? 0.0 : errors[position];
+    }
+
+    public double getTotal() {
+        return total;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private void clear() {
+        Arrays.fill(keys, null);
+        positions.clear();
+        size = 0;
+        total = 0;
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (counts[parent] <= counts[position]) {
+                return;
+            }
+            swap(parent, position);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (right < size && counts[right] < counts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(smallest, position);
+            position = smallest;
+        }
+    }
+
+    private void swap(int left, int right) {
+        String key = keys[left];
+        keys[left] = keys[right];
+        keys[right] = key;
+        double count = counts[left];
+        counts[left] = counts[right];
+        counts[right] = count;
+        double error = errors[left];
+        errors[left] = errors[right];
+        errors[right] = error;
+        positions.put(keys[left], left);
+        positions.put(keys[right], right);
+    }
+}
@@ -0,0 +1,144 @@
+package com.smallworld;
+
+import java.util.Arrays;
+
+/**
+ * Dictionary assigning dense int ids, in insertion order, to distinct strings and keeping one canonical instance of
+ * each. Strings can be looked up straight from a character buffer, e.g. the one of a JSON parser, so a value already
+ * in the dictionary is resolved without allocating a new {@link String}. Not thread-safe.
+ */
+final class StringDictionary {
+    private static final int NO_ID = -1;
+
+    private String[] strings = new String[16];
+    private int[] hashes = new int[16];
+    private int size;
+    // Open-addressing table of ids, NO_ID marking a free slot
+    private int[] slots = newSlots(32);
+
+    /**
+     * Resolves the id of a string, adding it to the dictionary if it is new.
+     *
+     * @param string The string to resolve.
+     * @return The id of the string.
+     */
+    int id(String string) {
+        int hash = string.hashCode();
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot];
+            if (id == NO_ID) {
+                return add(string, hash, slot);
+            }
+            if (hashes[id] == hash && strings[id].equals(string)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Resolves the canonical instance of the string held in a region of a character buffer, adding it to the
+     * dictionary if it is new. Only a new string allocates.
+     *
+     * @param buffer The buffer holding the characters.
+     * @param offset The position of the first character.
+     * @param length The number of characters.
+     * @return The canonical instance of the string.
+     */
+    String intern(char[] buffer, int offset, int length) {
+        // Same hash as String.hashCode, so strings added either way resolve to the same entry
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot];
+            if (id == NO_ID) {
+                // Resolved after adding, which may replace the strings array
+                int added = add(new String(buffer, offset, length), hash, slot);
+                return strings[added];
+            }
+            if (hashes[id] == hash && matches(strings[id], buffer, offset, length)) {
+                return strings[id];
+            }
+        }
+    }
+
+    /**
+     * @param string A string, e.g. one returned by {@link #intern(char[], int, int)}.
+     * @return The id of the string, or -1 if it is not in the dictionary.
+     */
+    int find(String string) {
+        int hash = string.hashCode();
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; slots[slot] != NO_ID; slot = (slot + 1) & mask) {
+            int id = slots[slot];
+            if (hashes[id] == hash && strings[id].equals(string)) {
+                return id;
+            }
+        }
+        return NO_ID;
+    }
+
+    String get(int id) {
+        return strings[id];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return The strings of the dictionary, indexed by id.
+     */
+    String[] toArray() {
+        return Arrays.copyOf(strings, size);
+    }
+
+    private int add(String string, int hash, int slot) {
+        if (size == strings.length) {
+            strings = Arrays.copyOf(strings, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        strings[id] = string;
+        hashes[id] = hash;
+        slots[slot] = id;
+        // Kept at most half full so probe sequences stay short
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        slots = newSlots(slots.length * 2);
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (slots[slot] != NO_ID) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id;
+        }
+    }
+
+    private static boolean matches(String string, char[] buffer, int offset, int length) {
+        if (string.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (string.charAt(i) != buffer[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] newSlots(int capacity) {
+        int[] slots = new int[capacity];
+        Arrays.fill(slots, NO_ID);
+        return slots;
+    }
+}
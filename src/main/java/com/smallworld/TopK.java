@@ -0,0 +1,199 @@
+package com.smallworld;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Bounded selection of the K best int elements (store rows or name ids) under a total order, in O(n log K) time
+ * and O(min(K, n)) memory. Elements live in a primitive binary heap whose root is the worst element kept, so a
+ * candidate that does not beat it is rejected in O(1) without allocating. The heap grows with the elements kept,
+ * so a K far above the number of elements costs nothing.
+ * <p>
+ * The order must be total, e.g. break ties on the element itself, for the selection to be deterministic.
+ * Selections over disjoint inputs can be merged with {@link #merge(TopK)}, giving the same result as a single
+ * selection over the whole input. Not thread-safe.
+ */
+public final class TopK {
+    // Smallest range worth handing to a separate fork-join task
+    private static final int MIN_PARTITION_SIZE = 4096;
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Total order over int elements: negative if the left element ranks before the right one.
+     */
+    @FunctionalInterface
+    public interface IntOrder {
+        int compare(int left, int right);
+    }
+
+    private final int k;
+    private final IntOrder order;
+    // Grown on demand up to k elements
+    private int[] heap;
+    private int size;
+
+    public TopK(int k, IntOrder order) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        this.k = k;
+        this.order = order;
+        this.heap = new int[Math.min(k, INITIAL_CAPACITY)];
+    }
+
+    /**
+     * Selects the K best elements in the range [from, to), splitting the range across the pool if one is given.
+     *
+     * @param k     The number of elements to select.
+     * @param order The order ranking the elements, best first.
+     * @param from  The first element of the range.
+     * @param to    The element after the last one of the range.
+     * @param pool  The pool selecting partitions in parallel, or null to select on the calling thread.
+     * @return The selection.
+     */
+    public static TopK select(int k, IntOrder order, int from, int to, ForkJoinPool pool) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        // No more than the whole range can be selected
+        k = Math.min(k, Math.max(0, to - from));
+        if (pool == null) {
+            return new TopK(k, order).offerRange(from, to);
+        }
+        int partitionSize = Math.max(MIN_PARTITION_SIZE, (to - from) / (pool.getParallelism() * 4) + 1);
+        return pool.invoke(new RangeTask(k, order, from, to, partitionSize));
+    }
+
+    /**
+     * Offers every element in the range [from, to).
+     *
+     * @return This selection.
+     */
+    public TopK offerRange(int from, int to) {
+        for (int element = from; element < to; element++) {
+            offer(element);
+        }
+        return this;
+    }
+
+    /**
+     * Offers an element, keeping it if it ranks among the K best seen so far.
+     *
+     * @param element The element to offer.
+     */
+    public void offer(int element) {
+        if (size < k) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, (int) Math.min(k, Math.max(INITIAL_CAPACITY, 2L * size)));
+            }
+            heap[size] = element;
+            siftUp(size++);
+        } else if (k > 0 && order.compare(element, heap[0]) < 0) {
+            heap[0] = element;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Merges a selection made over other elements with the same K and order into this one.
+     *
+     * @param other The selection to merge.
+     * @return This selection.
+     */
+    public TopK merge(TopK other) {
+        for (int index = 0; index < other.size; index++) {
+            offer(other.heap[index]);
+        }
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The selected elements, best first.
+     */
+    public int[] toSortedArray() {
+        int[] kept = Arrays.copyOf(heap, size);
+        int keptSize = size;
+        // Heap sort: repeatedly move the worst remaining element to the end
+        int[] sorted = new int[size];
+        while (size > 0) {
+            sorted[size - 1] = heap[0];
+            heap[0] = heap[--size];
+            siftDown(0);
+        }
+        System.arraycopy(kept, 0, heap, 0, keptSize);
+        size = keptSize;
+        return sorted;
+    }
+
+    // The heap keeps the worst element at the root: a parent never ranks before its children
+
+    private void siftUp(int index) {
+        int element = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (order.compare(heap[parent], element) >= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = element;
+    }
+
+    private void siftDown(int index) {
+        int element = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && order.compare(heap[right], heap[child]) > 0) {
+                child = right;
+            }
+            if (order.compare(element, heap[child]) >= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = element;
+    }
+
+    /**
+     * Selects over a range, splitting it in halves until the halves are small enough to select sequentially.
+     */
+    private static final class RangeTask extends RecursiveTask<TopK> {
+        private static final long serialVersionUID = 1L;
+
+        private final int k;
+        private final IntOrder order;
+        private final int from;
+        private final int to;
+        private final int partitionSize;
+
+        private RangeTask(int k, IntOrder order, int from, int to, int partitionSize) {
+            this.k = k;
+            this.order = order;
+            this.from = from;
+            this.to = to;
+            this.partitionSize = partitionSize;
+        }
+
+        @Override
+        protected TopK compute() {
+            if (to - from <= partitionSize) {
+                return new TopK(k, order).offerRange(from, to);
+            }
+            int middle = (from + to) >>> 1;
+            RangeTask left = new RangeTask(k, order, from, middle, partitionSize);
+            RangeTask right = new RangeTask(k, order, middle, to, partitionSize);
+            left.fork();
+            TopK selection = right.compute();
+            return left.join().merge(selection);
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package com.smallworld;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
 public class Transaction {
     private int mtn;
     private double amount;
+    @JsonDeserialize(using = InterningStringDeserializer.Names.class)
     private String senderFullName;
     private int senderAge;
+    @JsonDeserialize(using = InterningStringDeserializer.Names.class)
     private String beneficiaryFullName;
     private int beneficiaryAge;
     private Integer issueId;
     private boolean issueSolved;
+    @JsonDeserialize(using = InterningStringDeserializer.Messages.class)
     private String issueMessage;
 
     public Transaction(){}
@@ -0,0 +1,322 @@
+package com.smallworld;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Mutable accumulator computing every {@link TransactionReport} metric in a single pass over the rows of a
+ * {@link TransactionColumnStore}. Since the store holds every MTN exactly once, no deduplication is needed and
+ * per-name state lives in bit sets indexed by name id rather than in hash maps.
+ * <p>
+ * Aggregators over consecutive row ranges can be merged with {@link #combine(TransactionAggregator)}, which is how
+ * {@link #aggregate(TransactionColumnStore, TransactionIndexes, int, ForkJoinPool)} splits the work across cores.
+ * Every merge is exact, so the parallel and sequential results are identical. Not thread-safe.
+ * <p>
+ * Aggregators created with the public constructor may accept any subset of the rows, so they remember which rows they
+ * accepted; the static {@code aggregate} methods cover every row and skip that bookkeeping.
+ */
+public class TransactionAggregator {
+    // Smallest range worth handing to a separate fork-join task
+    private static final int MIN_PARTITION_SIZE = 4096;
+
+    private final TransactionColumnStore store;
+    private final int topLimit;
+    private int rowCount;
+    private final ExactSum totalAmount = new ExactSum();
+    private double maxAmount;
+    // Accepted rows, or null when every row of the store is accepted
+    private final BitSet rows;
+    private final BitSet clients = new BitSet();
+    private final BitSet clientsWithOpenIssues = new BitSet();
+    private final IntHashSet unsolvedIssueIds = new IntHashSet();
+    private final List<String> solvedIssueMessages = new ArrayList<>();
+    // Bounded heap of the rows holding the highest amounts seen so far
+    private final TopK topRows;
+
+    /**
+     * Creates an aggregator for any subset of the rows of a store.
+     *
+     * @param store    The store holding the transactions to aggregate.
+     * @param topLimit The number of transactions to keep in {@link TransactionReport#getTopTransactionsByAmount()}.
+     */
+    public TransactionAggregator(TransactionColumnStore store, int topLimit) {
+        this(store, topLimit, true);
+    }
+
+    private TransactionAggregator(TransactionColumnStore store, int topLimit, boolean subset) {
+        if (topLimit < 0) {
+            throw new IllegalArgumentException("topLimit must not be negative: " + topLimit);
+        }
+        this.store = store;
+        this.topLimit = topLimit;
+        this.rows = subset ? new BitSet() : null;
+        // Ties on amount rank the earliest row first, like a stable sort
+        this.topRows = new TopK(topLimit, this::compareByAmount);
+    }
+
+    /**
+     * Computes the report for every row of the store on the calling thread.
+     *
+     * @param store    The store holding the transactions to aggregate.
+     * @param indexes  The indexes of the store.
+     * @param topLimit The number of transactions to keep in {@link TransactionReport#getTopTransactionsByAmount()}.
+     * @return The report for the store.
+     */
+    public static TransactionReport aggregate(TransactionColumnStore store, TransactionIndexes indexes, int topLimit) {
+        return new TransactionAggregator(store, topLimit, false).acceptRange(0, store.size()).toReport(indexes, null);
+    }
+
+    /**
+     * Computes the report for every row of the store, splitting the rows into ranges aggregated in parallel on the
+     * given pool and merged afterwards. The result is identical to the sequential one.
+     *
+     * @param store    The store holding the transactions to aggregate.
+     * @param indexes  The indexes of the store.
+     * @param topLimit The number of transactions to keep in {@link TransactionReport#getTopTransactionsByAmount()}.
+     * @param pool     The pool running the partitions.
+     * @return The report for the store.
+     */
+    public static TransactionReport aggregate(TransactionColumnStore store, TransactionIndexes indexes, int topLimit, ForkJoinPool pool) {
+        // A few partitions per worker keep the load balanced without multiplying per-partition state
+        int partitionSize = Math.max(MIN_PARTITION_SIZE, store.size() / (pool.getParallelism() * 4) + 1);
+        TransactionAggregator aggregator = pool.invoke(new RangeTask(store, topLimit, 0, store.size(), partitionSize));
+        return aggregator.toReport(indexes, pool);
+    }
+
+    /**
+     * Adds every row of the store to the aggregation.
+     *
+     * @return This aggregator.
+     */
+    public TransactionAggregator acceptAll() {
+        return acceptRange(0, store.size());
+    }
+
+    /**
+     * Adds the rows in the given range of the store to the aggregation.
+     *
+     * @param fromRow The first row to add.
+     * @param toRow   The row after the last one to add.
+     * @return This aggregator.
+     */
+    public TransactionAggregator acceptRange(int fromRow, int toRow) {
+        for (int row = fromRow; row < toRow; row++) {
+            accept(row);
+        }
+        return this;
+    }
+
+    /**
+     * Adds a row of the store to the aggregation. Each row must be accepted at most once.
+     *
+     * @param row The row to add.
+     */
+    public void accept(int row) {
+        double amount = store.getAmount(row);
+        maxAmount = rowCount++ == 0 ? amount : Math.max(maxAmount, amount);
+        totalAmount.add(amount);
+        if (rows != null) {
+            rows.set(row);
+        }
+
+        int senderId = store.getSenderId(row);
+        int beneficiaryId = store.getBeneficiaryId(row);
+        addClient(clients, senderId);
+        addClient(clients, beneficiaryId);
+
+        boolean openIssue = false;
+        for (int issue = store.getIssueStart(row); issue < store.getIssueEnd(row); issue++) {
+            if (store.isIssueSolved(issue)) {
+                if (store.getIssueMessage(issue) != null) {
+                    solvedIssueMessages.add(store.getIssueMessage(issue));
+                }
+            } else {
+                unsolvedIssueIds.add(store.getIssueId(issue));
+                openIssue = true;
+            }
+        }
+        if (openIssue) {
+            addClient(clientsWithOpenIssues, senderId);
+            addClient(clientsWithOpenIssues, beneficiaryId);
+        }
+
+        topRows.offer(row);
+    }
+
+    private static void addClient(BitSet clients, int nameId) {
+        if (nameId != TransactionColumnStore.NO_NAME) {
+            clients.set(nameId);
+        }
+    }
+
+    /**
+     * Merges the rows accepted by another aggregator over the same store into this one. The other aggregator must
+     * have accepted rows that all follow the rows accepted by this one, so that ordered results stay in row order.
+     *
+     * @param following The aggregator of the following rows; it must not be used afterwards.
+     * @return This aggregator.
+     */
+    public TransactionAggregator combine(TransactionAggregator following) {
+        if (following.rowCount == 0) {
+            return this;
+        }
+        maxAmount = rowCount == 0 ? following.maxAmount : Math.max(maxAmount, following.maxAmount);
+        rowCount += following.rowCount;
+        totalAmount.add(following.totalAmount);
+        if (rows != null) {
+            rows.or(following.rows);
+        }
+        clients.or(following.clients);
+        clientsWithOpenIssues.or(following.clientsWithOpenIssues);
+        unsolvedIssueIds.addAll(following.unsolvedIssueIds);
+        solvedIssueMessages.addAll(following.solvedIssueMessages);
+        topRows.merge(following.topRows);
+        return this;
+    }
+
+    private int compareByAmount(int leftRow, int rightRow) {
+        int result = Double.compare(store.getAmount(rightRow), store.getAmount(leftRow));
+        return result != 0 ? result : Integer.compare(leftRow, rightRow);
+    }
+
+    /**
+     * Builds the immutable report for the rows accepted so far.
+     *
+     * @return The report; later calls to {@link #accept(int)} do not affect it.
+     */
+    public TransactionReport toReport() {
+        return toReport(TransactionIndexes.of(store), null);
+    }
+
+    /**
+     * Builds the immutable report for the rows accepted so far, using prebuilt indexes of the store to derive the
+     * per-sender and per-beneficiary metrics.
+     *
+     * @param indexes The indexes of the store.
+     * @return The report; later calls to {@link #accept(int)} do not affect it.
+     */
+    public TransactionReport toReport(TransactionIndexes indexes) {
+        return toReport(indexes, null);
+    }
+
+    private TransactionReport toReport(TransactionIndexes indexes, ForkJoinPool pool) {
+        boolean allRows = rows == null || rowCount == store.size();
+        // Per-name metrics walk each name's rows in row order, so their sums never depend on the partitioning
+        double[] amountsBySenderId = new double[store.getNameCount()];
+        boolean[] sent = new boolean[store.getNameCount()];
+        // Each name's slot is only set by the task handling that name
+        List<List<Transaction>> transactionsByBeneficiaryId = new ArrayList<>(Collections.nCopies(store.getNameCount(), null));
+        forEachName(pool, id -> {
+            for (int position = indexes.getSenderStart(id); position < indexes.getSenderEnd(id); position++) {
+                int row = indexes.getSenderRow(position);
+                if (allRows || rows.get(row)) {
+                    amountsBySenderId[id] += store.getAmount(row);
+                    sent[id] = true;
+                }
+            }
+            List<Transaction> transactions = new ArrayList<>();
+            for (int position = indexes.getBeneficiaryStart(id); position < indexes.getBeneficiaryEnd(id); position++) {
+                int row = indexes.getBeneficiaryRow(position);
+                if (allRows || rows.get(row)) {
+                    transactions.add(store.toTransaction(row));
+                }
+            }
+            transactionsByBeneficiaryId.set(id, transactions.isEmpty() ? null : List.copyOf(transactions));
+        });
+
+        Map<String, Double> amountsBySender = new HashMap<>();
+        Map<String, List<Transaction>> byBeneficiary = new HashMap<>();
+        // Ties are broken by name so the result does not depend on the order of the rows
+        TopK topSenderId = new TopK(1, (left, right) -> {
+            int result = Double.compare(amountsBySenderId[right], amountsBySenderId[left]);
+            return result != 0 ? result : store.getName(left).compareTo(store.getName(right));
+        });
+        for (int id = 0; id < store.getNameCount(); id++) {
+            String name = store.getName(id);
+            if (transactionsByBeneficiaryId.get(id) != null) {
+                byBeneficiary.put(name, transactionsByBeneficiaryId.get(id));
+            }
+            if (sent[id]) {
+                amountsBySender.put(name, amountsBySenderId[id]);
+                topSenderId.offer(id);
+            }
+        }
+        String topSender = topSenderId.size() == 0 ? null : store.getName(topSenderId.toSortedArray()[0]);
+
+        List<Transaction> top = new ArrayList<>(topRows.size());
+        for (int row : topRows.toSortedArray()) {
+            top.add(store.toTransaction(row));
+        }
+
+        return new TransactionReport(
+                totalAmount.value(),
+                maxAmount,
+                amountsBySender,
+                names(clients),
+                names(clientsWithOpenIssues),
+                byBeneficiary,
+                unsolvedIssueIds.toSet(),
+                new ArrayList<>(solvedIssueMessages),
+                top,
+                topSender);
+    }
+
+    private void forEachName(ForkJoinPool pool, IntConsumer action) {
+        if (pool == null) {
+            IntStream.range(0, store.getNameCount()).forEach(action);
+        } else {
+            // A parallel stream started from within the pool runs on that pool
+            pool.submit(() -> IntStream.range(0, store.getNameCount()).parallel().forEach(action)).join();
+        }
+    }
+
+    private Set<String> names(BitSet ids) {
+        Set<String> names = new HashSet<>();
+        ids.stream().forEach(id -> names.add(store.getName(id)));
+        return names;
+    }
+
+    /**
+     * Aggregates a range of rows, splitting it in halves until the halves are small enough to run sequentially.
+     */
+    private static final class RangeTask extends RecursiveTask<TransactionAggregator> {
+        private static final long serialVersionUID = 1L;
+
+        private final TransactionColumnStore store;
+        private final int topLimit;
+        private final int fromRow;
+        private final int toRow;
+        private final int partitionSize;
+
+        private RangeTask(TransactionColumnStore store, int topLimit, int fromRow, int toRow, int partitionSize) {
+            this.store = store;
+            this.topLimit = topLimit;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.partitionSize = partitionSize;
+        }
+
+        @Override
+        protected TransactionAggregator compute() {
+            if (toRow - fromRow <= partitionSize) {
+                return new TransactionAggregator(store, topLimit, false).acceptRange(fromRow, toRow);
+            }
+            int middle = (fromRow + toRow) >>> 1;
+            RangeTask left = new RangeTask(store, topLimit, fromRow, middle, partitionSize);
+            RangeTask right = new RangeTask(store, topLimit, middle, toRow, partitionSize);
+            left.fork();
+            TransactionAggregator following = right.compute();
+            return left.join().combine(following);
+        }
+    }
+}
@@ -0,0 +1,550 @@
+package com.smallworld;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+
+/**
+ * Immutable, column oriented representation of a set of transactions.
+ * <p>
+ * The input repeats a transaction once per issue; here every MTN (Mobile Transaction Number) is stored exactly once
+ * as a row of primitive columns, and its issues live in a side table indexed by row. Sender and beneficiary names
+ * are dictionary encoded, so each distinct name is held once and rows only keep its int id.
+ * Rows are numbered in the order their MTN was first seen.
+ * <p>
+ * Columns are held as NIO buffers, either wrapping heap arrays when the store is built from transactions, or
+ * mapped straight from a binary snapshot file by {@link TransactionSnapshotFile}; queries read both the same way.
+ */
+public final class TransactionColumnStore {
+    /** Name id used for rows whose sender or beneficiary name is missing. */
+    public static final int NO_NAME = -1;
+    static final int NO_MESSAGE = -1;
+    // Row flag kept for rows without issues, whose source transaction still carries an issueSolved value
+    static final byte ROW_ISSUE_SOLVED = 1;
+
+    private final int rowCount;
+    private final IntBuffer mtns;
+    private final DoubleBuffer amounts;
+    private final IntBuffer senderIds;
+    private final IntBuffer senderAges;
+    private final IntBuffer beneficiaryIds;
+    private final IntBuffer beneficiaryAges;
+    // One byte of ROW_* bits per row
+    private final ByteBuffer rowFlags;
+    private final String[] names;
+    private final Map<String, Integer> nameIds;
+    // The issues of row r are stored at positions [issueOffsets[r], issueOffsets[r + 1]) of the issue columns
+    private final IntBuffer issueOffsets;
+    private final IntBuffer issueIds;
+    // One byte per issue, non-zero when the issue is solved
+    private final ByteBuffer issueSolved;
+    // Issue messages are dictionary encoded like names, NO_MESSAGE standing for a missing message
+    private final IntBuffer issueMessageIds;
+    private final String[] messages;
+    private final RowList rows;
+
+    TransactionColumnStore(int rowCount, IntBuffer mtns, DoubleBuffer amounts, IntBuffer senderIds, IntBuffer senderAges,
+                           IntBuffer beneficiaryIds, IntBuffer beneficiaryAges, ByteBuffer rowFlags, String[] names,
+                           IntBuffer issueOffsets, IntBuffer issueIds, ByteBuffer issueSolved, IntBuffer issueMessageIds,
+                           String[] messages) {
+        this.rowCount = rowCount;
+        this.mtns = mtns;
+        this.amounts = amounts;
+        this.senderIds = senderIds;
+        this.senderAges = senderAges;
+        this.beneficiaryIds = beneficiaryIds;
+        this.beneficiaryAges = beneficiaryAges;
+        this.rowFlags = rowFlags;
+        this.names = names;
+        this.nameIds = new HashMap<>(names.length * 2);
+        for (int id = 0; id < names.length; id++) {
+            nameIds.put(names[id], id);
+        }
+        this.issueOffsets = issueOffsets;
+        this.issueIds = issueIds;
+        this.issueSolved = issueSolved;
+        this.issueMessageIds = issueMessageIds;
+        this.messages = messages;
+        this.rows = new RowList();
+    }
+
+    /**
+     * Builds a store holding the given transactions. If they already are the row view of a store, that store is
+     * returned as is.
+     *
+     * @param transactions The transactions to store, possibly repeating an MTN once per issue.
+     * @return The store holding the transactions.
+     */
+    public static TransactionColumnStore of(Iterable<Transaction> transactions) {
+        if (transactions instanceof RowList) {
+            return ((RowList) transactions).store();
+        }
+        Builder builder = builder();
+        transactions.forEach(builder);
+        return builder.build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Merges stores holding shards of the same data set into one store, in order. An MTN present in several shards
+     * keeps the row values of the first shard holding it and collects the issues of all of them; an issue repeated
+     * for the same MTN takes its state from the last shard holding it.
+     *
+     * @param shards The stores to merge, e.g. one per file in name order.
+     * @return The merged store.
+     */
+    public static TransactionColumnStore merge(List<TransactionColumnStore> shards) {
+        return new Builder().merge(shards).build();
+    }
+
+    /**
+     * @return The number of rows, i.e. the number of distinct MTNs.
+     */
+    public int size() {
+        return rowCount;
+    }
+
+    public int getMtn(int row) {
+        return mtns.get(row);
+    }
+
+    public double getAmount(int row) {
+        return amounts.get(row);
+    }
+
+    public int getSenderId(int row) {
+        return senderIds.get(row);
+    }
+
+    public int getSenderAge(int row) {
+        return senderAges.get(row);
+    }
+
+    public int getBeneficiaryId(int row) {
+        return beneficiaryIds.get(row);
+    }
+
+    public int getBeneficiaryAge(int row) {
+        return beneficiaryAges.get(row);
+    }
+
+    /**
+     * @return The {@code ROW_*} bits of the row.
+     */
+    byte getRowFlags(int row) {
+        return rowFlags.get(row);
+    }
+
+    /**
+     * @return The number of distinct sender and beneficiary names, ids range from 0 to this value exclusive.
+     */
+    public int getNameCount() {
+        return names.length;
+    }
+
+    /**
+     * @param nameId A name id, or {@link #NO_NAME}.
+     * @return The name with the given id, or null for {@link #NO_NAME}.
+     */
+    public String getName(int nameId) {
+        return nameId == NO_NAME ? null : names[nameId];
+    }
+
+    /**
+     * @param name A sender or beneficiary name.
+     * @return The id of the name, or {@link #NO_NAME} if no row references it.
+     */
+    public int getNameId(String name) {
+        return nameIds.getOrDefault(name, NO_NAME);
+    }
+
+    /**
+     * @return The index of the first issue of the row in the issue columns.
+     */
+    public int getIssueStart(int row) {
+        return issueOffsets.get(row);
+    }
+
+    /**
+     * @return The index after the last issue of the row in the issue columns.
+     */
+    public int getIssueEnd(int row) {
+        return issueOffsets.get(row + 1);
+    }
+
+    public int getIssueCount() {
+        return issueIds.limit();
+    }
+
+    public int getIssueId(int issue) {
+        return issueIds.get(issue);
+    }
+
+    public boolean isIssueSolved(int issue) {
+        return issueSolved.get(issue) != 0;
+    }
+
+    public String getIssueMessage(int issue) {
+        return getMessage(issueMessageIds.get(issue));
+    }
+
+    int getIssueMessageId(int issue) {
+        return issueMessageIds.get(issue);
+    }
+
+    int getMessageCount() {
+        return messages.length;
+    }
+
+    String getMessage(int messageId) {
+        return messageId == NO_MESSAGE ? null : messages[messageId];
+    }
+
+    /**
+     * Materializes a row as a transaction carrying its first issue, if any.
+     *
+     * @param row The row to materialize.
+     * @return A new transaction holding the values of the row.
+     */
+    public Transaction toTransaction(int row) {
+        int issue = issueOffsets.get(row);
+        return issue < issueOffsets.get(row + 1) ? toTransaction(row, issue) : toTransaction(row, -1);
+    }
+
+    private Transaction toTransaction(int row, int issue) {
+        return new Transaction(
+                mtns.get(row),
+                amounts.get(row),
+                getName(senderIds.get(row)),
+                senderAges.get(row),
+                getName(beneficiaryIds.get(row)),
+                beneficiaryAges.get(row),
+                issue < 0 ? null : issueIds.get(issue),
+                issue >= 0 ? isIssueSolved(issue) : (rowFlags.get(row) & ROW_ISSUE_SOLVED) != 0,
+                issue < 0 ? null : getIssueMessage(issue));
+    }
+
+    /**
+     * Counts the transactions of {@link #asList()}, one per issue or per row without issues, by scanning the issue
+     * offsets; unlike the size of the view, this allocates nothing.
+     *
+     * @return The number of transactions in the row view.
+     */
+    int getViewSize() {
+        int rowsWithIssues = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (issueOffsets.get(row + 1) > issueOffsets.get(row)) {
+                rowsWithIssues++;
+            }
+        }
+        return rowCount + getIssueCount() - rowsWithIssues;
+    }
+
+    /**
+     * Returns a read-only list view with one transaction per issue, or one per row without issues, so the store can
+     * be handed to code expecting transactions. Elements are materialized on access and not retained.
+     * <p>
+     * The view is grouped by MTN rather than a copy of the source file: rows follow the order in which their MTN
+     * first appeared, each followed by its issues in file order, so an MTN repeated further down the file is read
+     * back next to its first occurrence. A row without issues keeps the {@code issueSolved} value of its first
+     * transaction but not its issue message, and repetitions of an MTN without an issue id are dropped.
+     *
+     * @return The row view of this store.
+     */
+    public List<Transaction> asList() {
+        return rows;
+    }
+
+    /**
+     * Read-only view materializing one transaction per issue, or per row when the row has no issues. The positions of
+     * the rows in the view are computed on first access, so stores that are never viewed as a list, e.g. mapped
+     * snapshots only queried through the columns, do not pay for them.
+     */
+    private final class RowList extends AbstractList<Transaction> implements RandomAccess {
+        // Row r covers the view positions [viewOffsets[r], viewOffsets[r + 1]); null until first needed
+        private volatile int[] viewOffsets;
+
+        private TransactionColumnStore store() {
+            return TransactionColumnStore.this;
+        }
+
+        private int[] viewOffsets() {
+            int[] offsets = viewOffsets;
+            if (offsets == null) {
+                // Racing threads compute identical arrays, so whichever is published last is as good as any
+                offsets = new int[rowCount + 1];
+                for (int row = 0; row < rowCount; row++) {
+                    offsets[row + 1] = offsets[row] + Math.max(1, issueOffsets.get(row + 1) - issueOffsets.get(row));
+                }
+                viewOffsets = offsets;
+            }
+            return offsets;
+        }
+
+        @Override
+        public Transaction get(int index) {
+            int[] offsets = viewOffsets();
+            if (index < 0 || index >= offsets[rowCount]) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + offsets[rowCount]);
+            }
+            int position = Arrays.binarySearch(offsets, index);
+            // Every row spans at least one position, so the offsets are strictly increasing
+            int row = position >= 0 ? position : -position - 2;
+            int issue = issueOffsets.get(row) + index - offsets[row];
+            return toTransaction(row, issue < issueOffsets.get(row + 1) ? issue : -1);
+        }
+
+        @Override
+        public int size() {
+            return viewOffsets()[rowCount];
+        }
+    }
+
+    /**
+     * Collects transactions into a {@link TransactionColumnStore}. Rows repeating an MTN already seen only
+     * contribute their issue; the other values of the first row seen for the MTN are kept. Not thread-safe.
+     */
+    public static final class Builder implements Consumer<Transaction> {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private final IntIntHashMap rowsByMtn = new IntIntHashMap(INITIAL_CAPACITY);
+        // Filled while the transactions are parsed when the reader interns strings, see getNames()
+        private final StringDictionary names = new StringDictionary();
+        private final StringDictionary messages = new StringDictionary();
+        private int rowCount;
+        private int[] mtns = new int[INITIAL_CAPACITY];
+        private double[] amounts = new double[INITIAL_CAPACITY];
+        private int[] senderIds = new int[INITIAL_CAPACITY];
+        private int[] senderAges = new int[INITIAL_CAPACITY];
+        private int[] beneficiaryIds = new int[INITIAL_CAPACITY];
+        private int[] beneficiaryAges = new int[INITIAL_CAPACITY];
+        private byte[] rowFlags = new byte[INITIAL_CAPACITY];
+        private int issueCount;
+        private int[] issueRows = new int[INITIAL_CAPACITY];
+        private int[] issueIds = new int[INITIAL_CAPACITY];
+        private boolean[] issueSolved = new boolean[INITIAL_CAPACITY];
+        private int[] issueMessageIds = new int[INITIAL_CAPACITY];
+
+        private Builder() {
+        }
+
+        @Override
+        public void accept(Transaction transaction) {
+            int row = rowsByMtn.get(transaction.getMtn(), -1);
+            if (row < 0) {
+                boolean solvedWithoutIssue = transaction.getIssueId() == null && transaction.isIssueSolved();
+                row = addRow(transaction.getMtn(), transaction.getAmount(),
+                        nameId(transaction.getSenderFullName()), transaction.getSenderAge(),
+                        nameId(transaction.getBeneficiaryFullName()), transaction.getBeneficiaryAge(),
+                        solvedWithoutIssue ? ROW_ISSUE_SOLVED : 0);
+            }
+            if (transaction.getIssueId() != null) {
+                addIssue(row, transaction.getIssueId(), transaction.isIssueSolved(), messageId(transaction.getIssueMessage()));
+            }
+        }
+
+        private int addRow(int mtn, double amount, int senderId, int senderAge, int beneficiaryId, int beneficiaryAge,
+                           byte flags) {
+            if (rowCount == mtns.length) {
+                int capacity = rowCount * 2;
+                mtns = Arrays.copyOf(mtns, capacity);
+                amounts = Arrays.copyOf(amounts, capacity);
+                senderIds = Arrays.copyOf(senderIds, capacity);
+                senderAges = Arrays.copyOf(senderAges, capacity);
+                beneficiaryIds = Arrays.copyOf(beneficiaryIds, capacity);
+                beneficiaryAges = Arrays.copyOf(beneficiaryAges, capacity);
+                rowFlags = Arrays.copyOf(rowFlags, capacity);
+            }
+            int row = rowCount++;
+            mtns[row] = mtn;
+            amounts[row] = amount;
+            this.senderIds[row] = senderId;
+            this.senderAges[row] = senderAge;
+            this.beneficiaryIds[row] = beneficiaryId;
+            this.beneficiaryAges[row] = beneficiaryAge;
+            this.rowFlags[row] = flags;
+            rowsByMtn.put(mtn, row);
+            return row;
+        }
+
+        private int addIssue(int row, int issueId, boolean solved, int messageId) {
+            if (issueCount == issueIds.length) {
+                int capacity = issueCount * 2;
+                issueRows = Arrays.copyOf(issueRows, capacity);
+                issueIds = Arrays.copyOf(issueIds, capacity);
+                issueSolved = Arrays.copyOf(issueSolved, capacity);
+                issueMessageIds = Arrays.copyOf(issueMessageIds, capacity);
+            }
+            int issue = issueCount++;
+            issueRows[issue] = row;
+            issueIds[issue] = issueId;
+            issueSolved[issue] = solved;
+            issueMessageIds[issue] = messageId;
+            return issue;
+        }
+
+        /**
+         * Merges stores into this builder, in order. An MTN present in several stores keeps the row values of the
+         * first store holding it and collects the issues of all of them; an issue id repeated for the same MTN takes
+         * the state of the last store holding it, e.g. an issue solved in a later shard.
+         */
+        private Builder merge(List<TransactionColumnStore> stores) {
+            // Position of the issue of each (row, issue id) pair, to update repeated issues in place
+            Map<Long, Integer> issuesByKey = new HashMap<>();
+            for (TransactionColumnStore store : stores) {
+                // Dictionary ids of the store translated to ids of this builder, resolved once per distinct string
+                int[] nameMapping = new int[store.getNameCount()];
+                for (int id = 0; id < nameMapping.length; id++) {
+                    nameMapping[id] = nameId(store.getName(id));
+                }
+                int[] messageMapping = new int[store.getMessageCount()];
+                for (int id = 0; id < messageMapping.length; id++) {
+                    messageMapping[id] = messageId(store.getMessage(id));
+                }
+                for (int row = 0; row < store.size(); row++) {
+                    int target = rowsByMtn.get(store.getMtn(row), -1);
+                    if (target < 0) {
+                        target = addRow(store.getMtn(row), store.getAmount(row),
+                                mapId(nameMapping, store.getSenderId(row)), store.getSenderAge(row),
+                                mapId(nameMapping, store.getBeneficiaryId(row)), store.getBeneficiaryAge(row),
+                                store.getRowFlags(row));
+                    }
+                    for (int issue = store.getIssueStart(row); issue < store.getIssueEnd(row); issue++) {
+                        long key = ((long) target << Integer.SIZE) | (store.getIssueId(issue) & 0xFFFFFFFFL);
+                        int messageId = mapId(messageMapping, store.getIssueMessageId(issue));
+                        Integer existing = issuesByKey.get(key);
+                        if (existing == null) {
+                            issuesByKey.put(key, addIssue(target, store.getIssueId(issue), store.isIssueSolved(issue), messageId));
+                        } else {
+                            issueSolved[existing] = store.isIssueSolved(issue);
+                            issueMessageIds[existing] = messageId;
+                        }
+                    }
+                }
+            }
+            return this;
+        }
+
+        private static int mapId(int[] mapping, int id) {
+            return id < 0 ? id : mapping[id];
+        }
+
+        /**
+         * @return The dictionary of sender and beneficiary names, which the reader interns parsed names into so the
+         * rows it then hands over resolve their ids with an identity comparison.
+         */
+        StringDictionary getNames() {
+            return names;
+        }
+
+        /**
+         * @return The dictionary of issue messages, see {@link #getNames()}.
+         */
+        StringDictionary getMessages() {
+            return messages;
+        }
+
+        private int nameId(String name) {
+            if (name == null) {
+                return NO_NAME;
+            }
+            return names.id(name);
+        }
+
+        private int messageId(String message) {
+            if (message == null) {
+                return NO_MESSAGE;
+            }
+            return messages.id(message);
+        }
+
+        /**
+         * Builds the store from the transactions collected so far.
+         *
+         * @return A new immutable store; the builder can keep collecting afterwards.
+         */
+        public TransactionColumnStore build() {
+            // Counting sort of the issues by row, keeping the order in which the issues of each row were seen
+            int[] offsets = new int[rowCount + 1];
+            for (int issue = 0; issue < issueCount; issue++) {
+                offsets[issueRows[issue] + 1]++;
+            }
+            for (int row = 0; row < rowCount; row++) {
+                offsets[row + 1] += offsets[row];
+            }
+            int[] next = Arrays.copyOf(offsets, rowCount);
+            int[] sortedIds = new int[issueCount];
+            byte[] sortedSolved = new byte[issueCount];
+            int[] sortedMessageIds = new int[issueCount];
+            for (int issue = 0; issue < issueCount; issue++) {
+                int position = next[issueRows[issue]]++;
+                sortedIds[position] = issueIds[issue];
+                sortedSolved[position] = (byte) (issueSolved[issue] ? 1 : 0);
+                sortedMessageIds[position] = issueMessageIds[issue];
+            }
+            int[] builtSenderIds = Arrays.copyOf(senderIds, rowCount);
+            int[] builtBeneficiaryIds = Arrays.copyOf(beneficiaryIds, rowCount);
+            return new TransactionColumnStore(
+                    rowCount,
+                    IntBuffer.wrap(Arrays.copyOf(mtns, rowCount)),
+                    DoubleBuffer.wrap(Arrays.copyOf(amounts, rowCount)),
+                    IntBuffer.wrap(builtSenderIds),
+                    IntBuffer.wrap(Arrays.copyOf(senderAges, rowCount)),
+                    IntBuffer.wrap(builtBeneficiaryIds),
+                    IntBuffer.wrap(Arrays.copyOf(beneficiaryAges, rowCount)),
+                    ByteBuffer.wrap(Arrays.copyOf(rowFlags, rowCount)),
+                    compact(names.toArray(), builtSenderIds, builtBeneficiaryIds),
+                    IntBuffer.wrap(offsets),
+                    IntBuffer.wrap(sortedIds),
+                    ByteBuffer.wrap(sortedSolved),
+                    IntBuffer.wrap(sortedMessageIds),
+                    compact(messages.toArray(), sortedMessageIds));
+        }
+
+        /**
+         * Drops the strings no column references, e.g. the names the reader interned for rows repeating an MTN,
+         * renumbering the ids of the columns in place. The remaining strings keep their order.
+         *
+         * @return The strings referenced by the columns.
+         */
+        private static String[] compact(String[] dictionary, int[]... columns) {
+            int[] mapping = new int[dictionary.length];
+            for (int[] column : columns) {
+                for (int id : column) {
+                    if (id >= 0) {
+                        mapping[id] = 1;
+                    }
+                }
+            }
+            int used = 0;
+            for (int id = 0; id < mapping.length; id++) {
+                mapping[id] = mapping[id] == 0 ? -1 : used++;
+            }
+            if (used == dictionary.length) {
+                return dictionary;
+            }
+            String[] compacted = new String[used];
+            for (int id = 0; id < mapping.length; id++) {
+                if (mapping[id] >= 0) {
+                    compacted[mapping[id]] = dictionary[id];
+                }
+            }
+            for (int[] column : columns) {
+                for (int index = 0; index < column.length; index++) {
+                    column[index] = mapId(mapping, column[index]);
+                }
+            }
+            return compacted;
+        }
+    }
+}
@@ -1,38 +1,239 @@
 package com.smallworld;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
+/**
+ * Queries over the transactions of a file. Every query reads the current immutable snapshot of the file and the
+ * results derived from it, so a fetcher can be shared by any number of threads without locking.
+ */
 public class TransactionDataFetcher {
-    private  List<Transaction> transactions;
-    private TransactionDataReader reader;
+    public static final String DEFAULT_FILE_PATH = "transactions.json";
+    private static final int TOP_TRANSACTIONS_LIMIT = 3;
+
+    private final TransactionDataReader reader;
+    private final String filePath;
+    // Pool running the aggregations in parallel, or null to run them on the calling thread
+    private final ForkJoinPool pool;
+    // Derived state of the last snapshot seen, rebuilt only when the reader hands out a different snapshot
+    private final AtomicReference<SnapshotView> view = new AtomicReference<>();
+    private final AtomicLong viewVersions = new AtomicLong();
+    // View every query of the current thread reads while set, see onOneSnapshot
+    private final ThreadLocal<SnapshotView> pinnedView = new ThreadLocal<>();
+    private final MetricsRegistry metrics;
+    // Error bounds of the sketches answering the approximate queries, or null if they are disabled
+    private final ApproximationSettings approximation;
+
     public TransactionDataFetcher(TransactionDataReader reader) throws IOException {
+        this(reader, DEFAULT_FILE_PATH);
+    }
+
+    public TransactionDataFetcher(TransactionDataReader reader, String filePath) throws IOException {
+        this(reader, filePath, null);
+    }
+
+    /**
+     * Creates a fetcher whose aggregations are split across the workers of the given pool. Results are identical to
+     * the ones of a sequential fetcher.
+     *
+     * @param reader   The reader providing the snapshots.
+     * @param filePath The path of the JSON file containing the transactions.
+     * @param pool     The pool running the aggregations, or null to run them on the calling thread.
+     */
+    public TransactionDataFetcher(TransactionDataReader reader, String filePath, ForkJoinPool pool) throws IOException {
+        this(reader, filePath, pool, MetricsRegistry.NOOP);
+    }
+
+    /**
+     * Creates a fetcher recording a latency histogram per query, named {@code fetcher.<method>}, in the given registry.
+     * Building the indexes and the report of a snapshot is timed as {@code fetcher.indexes.build} and
+     * {@code fetcher.report.build}; passes over the rows also count the rows they scanned and the repeated MTNs they
+     * collapsed, e.g. {@code fetcher.report.rowsScanned} and {@code fetcher.report.rowsDeduplicated}.
+     *
+     * @param reader   The reader providing the snapshots.
+     * @param filePath The path of the file containing the transactions.
+     * @param pool     The pool running the aggregations, or null to run them on the calling thread.
+     * @param metrics  The registry receiving the metrics.
+     */
+    public TransactionDataFetcher(TransactionDataReader reader, String filePath, ForkJoinPool pool, MetricsRegistry metrics) throws IOException {
+        this(reader, filePath, pool, metrics, null);
+    }
+
+    /**
+     * Creates a fetcher also answering the approximate queries, such as {@link #estimateUniqueClients()}, from
+     * fixed-memory sketches built with the given error bounds on first use.
+     *
+     * @param reader        The reader providing the snapshots.
+     * @param filePath      The path of the file containing the transactions.
+     * @param pool          The pool running the aggregations, or null to run them on the calling thread.
+     * @param metrics       The registry receiving the metrics.
+     * @param approximation The error bounds of the sketches, or null to disable the approximate queries.
+     */
+    public TransactionDataFetcher(TransactionDataReader reader, String filePath, ForkJoinPool pool, MetricsRegistry metrics,
+                                  ApproximationSettings approximation) throws IOException {
         this.reader = reader;
+        this.filePath = filePath;
+        this.pool = pool;
+        this.metrics = metrics;
+        this.approximation = approximation;
     }
 
     public List<Transaction> getAll() {
-        return this.transactions = this.reader.readTransactionsFromFile("transactions.json");
+        return this.reader.readTransactionsFromFile(this.filePath);
+    }
+
+    /**
+     * Retrieves the columnar store holding the current snapshot. Snapshots handed out by {@link TransactionDataReader}
+     * already are columnar; any other list of transactions is converted once and reused until it changes.
+     *
+     * @return The store for the current snapshot.
+     */
+    public TransactionColumnStore getColumnStore() {
+        return this.view().store;
+    }
+
+    /**
+     * Retrieves the report holding every metric of the current snapshot. The report is computed in a single pass
+     * over the columnar store the first time it is requested and then reused until the reader returns a different snapshot.
+     *
+     * @return The report for the current snapshot.
+     */
+    public TransactionReport getReport() {
+        return this.view().report.get();
+    }
+
+    /**
+     * Retrieves the sender, beneficiary and client indexes of the current snapshot, building them on first use.
+     *
+     * @return The indexes for the current snapshot.
+     */
+    public TransactionIndexes getIndexes() {
+        return this.view().indexes.get();
+    }
+
+    /**
+     * Retrieves the compliance issue index of the current snapshot, building it on first use.
+     *
+     * @return The issue index for the current snapshot.
+     */
+    public ComplianceIssueIndex getComplianceIssueIndex() {
+        return this.view().issues.get();
+    }
+
+    /**
+     * Creates running aggregates seeded with the current snapshot, to be kept up to date with
+     * {@link LiveTransactionAggregates#append(Transaction)} or {@link LiveTransactionAggregates#tail(TransactionDataReader, String)}
+     * instead of re-reading and re-scanning the whole file.
+     *
+     * @return New live aggregates holding the transactions of the current snapshot.
+     */
+    public LiveTransactionAggregates toLiveAggregates() {
+        return LiveTransactionAggregates.of(this.getAll());
+    }
+
+    /**
+     * Identifies the snapshot queries currently read, e.g. to tag results derived from it.
+     *
+     * @return A number that increases whenever the reader hands out a different snapshot.
+     */
+    public long getSnapshotVersion() {
+        return this.view().version;
+    }
+
+    /**
+     * Runs queries of this fetcher against a single snapshot: the reader is asked for the current snapshot once, and
+     * every query the action makes on the calling thread, {@link #getSnapshotVersion()} included, reads that one.
+     *
+     * @param action The queries to run.
+     * @return The result of the action.
+     */
+    <T> T onOneSnapshot(Supplier<T> action) {
+        if (this.pinnedView.get() != null) {
+            return action.get();
+        }
+        this.pinnedView.set(this.view());
+        try {
+            return action.get();
+        } finally {
+            this.pinnedView.remove();
+        }
+    }
+
+    private SnapshotView view() {
+        SnapshotView pinned = this.pinnedView.get();
+        if (pinned != null) {
+            return pinned;
+        }
+        // Reading the installed view before the snapshot means a view replacing it is never built from an older
+        // snapshot, and the compare-and-set keeps versions increasing
+        SnapshotView current = this.view.get();
+        List<Transaction> all = this.getAll();
+        if (current != null && current.source == all) {
+            return current;
+        }
+        SnapshotView created = new SnapshotView(all, this.viewVersions.incrementAndGet(), this.pool, this.metrics, this.approximation);
+        if (this.view.compareAndSet(current, created)) {
+            return created;
+        }
+        // Another thread installed a view meanwhile; share it if it reads the same snapshot
+        SnapshotView installed = this.view.get();
+        return installed.source == all ? installed : created;
     }
+
     /**
      * Calculates the total transaction amount, considering only unique transactions based on their MTN (Mobile Transaction Number).
      *
      * @return The sum of amounts for unique transactions.
      */
     public double getTotalTransactionAmount() {
-        // Set to track unique MTNs
-        Set<Integer> uniqueMtns = new HashSet<>();
+        long start = this.metrics.startTimer();
+        double result = this.getReport().getTotalAmount();
+        this.metrics.stopTimer("fetcher.getTotalTransactionAmount", start);
+        return result;
+    }
 
-        return this.getAll()
-                .stream()
-                // Filter transactions by adding only those with unique MTNs to the set
-                .filter(transaction -> uniqueMtns.add(transaction.getMtn()))
-                // Map the unique transactions to their amounts and sum them up
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+    /**
+     * Streaming counterpart of {@link #getTotalTransactionAmount()}: the file is parsed incrementally instead of being
+     * loaded into a snapshot, so memory use is bounded by the number of distinct MTNs rather than the size of the file.
+     *
+     * @return The sum of amounts for unique transactions.
+     * @throws UncheckedIOException If the file cannot be read.
+     */
+    public double getTotalTransactionAmountStreaming() {
+        long start = this.metrics.startTimer();
+        try (Stream<Transaction> stream = this.reader.streamTransactions(this.filePath)) {
+            double result = this.totalAmount(stream);
+            this.metrics.stopTimer("fetcher.getTotalTransactionAmountStreaming", start);
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
+    private double totalAmount(Stream<Transaction> transactions) {
+        // Set to track unique MTNs, without boxing them
+        IntHashSet uniqueMtns = new IntHashSet();
+        long[] scanned = {0};
+        // Same exact summation as the snapshot report, so both variants agree to the last bit
+        ExactSum total = new ExactSum();
+
+        transactions
+                // Filter transactions by adding only those with unique MTNs to the set
+                .filter(transaction -> {
+                    scanned[0]++;
+                    return uniqueMtns.add(transaction.getMtn());
+                })
+                // Sum up the amounts of the unique transactions
+                .forEach(transaction -> total.add(transaction.getAmount()));
+        this.recordRows("fetcher.getTotalTransactionAmountStreaming", scanned[0], scanned[0] - uniqueMtns.size());
+        return total.value();
+    }
 
     /**
      * Calculates the total transaction amount sent by a specific sender, considering only unique transactions based on their MTN (Mobile Transaction Number).
@@ -41,15 +242,45 @@ public class TransactionDataFetcher {
      * @return The sum of amounts for unique transactions sent by the specified sender.
      */
     public double getTotalTransactionAmountSentBy(String senderFullName) {
-        // Set to track unique MTNs for the specified sender
-        Set<Integer> uniqueMtns = new HashSet<>();
+        long start = this.metrics.startTimer();
+        double result = this.getIndexes().getTotalAmountSentBy(senderFullName);
+        this.metrics.stopTimer("fetcher.getTotalTransactionAmountSentBy", start);
+        return result;
+    }
 
-        return this.getAll().stream()
-                // Filter transactions by the specified sender and add only those with unique MTNs to the set
-                .filter(transaction -> senderFullName.equals(transaction.getSenderFullName()) && uniqueMtns.add(transaction.getMtn()))
-                // Map the unique transactions to their amounts and sum them up
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+    /**
+     * Retrieves the transactions sent by a specific sender, considering only the first occurrence of each unique MTN.
+     *
+     * @param senderFullName The full name of the sender.
+     * @return The transactions sent by the specified sender, in file order.
+     */
+    public List<Transaction> getTransactionsSentBy(String senderFullName) {
+        long start = this.metrics.startTimer();
+        List<Transaction> result = this.toTransactions(this.getIndexes().getRowsSentBy(senderFullName));
+        this.metrics.stopTimer("fetcher.getTransactionsSentBy", start);
+        return result;
+    }
+
+    /**
+     * Retrieves the transactions received by a specific beneficiary, considering only the first occurrence of each unique MTN.
+     *
+     * @param beneficiaryFullName The full name of the beneficiary.
+     * @return The transactions received by the specified beneficiary, in file order.
+     */
+    public List<Transaction> getTransactionsReceivedBy(String beneficiaryFullName) {
+        long start = this.metrics.startTimer();
+        List<Transaction> result = this.toTransactions(this.getIndexes().getRowsReceivedBy(beneficiaryFullName));
+        this.metrics.stopTimer("fetcher.getTransactionsReceivedBy", start);
+        return result;
+    }
+
+    private List<Transaction> toTransactions(int[] rows) {
+        TransactionColumnStore store = this.getColumnStore();
+        List<Transaction> transactions = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            transactions.add(store.toTransaction(row));
+        }
+        return transactions;
     }
 
 
@@ -59,17 +290,48 @@ public class TransactionDataFetcher {
      * @return The maximum transaction amount or 0.0 if there are no transactions.
      */
     public double getMaxTransactionAmount() {
-        // Set to track unique MTNs
-        Set<Integer> uniqueMtns = new HashSet<>();
+        long start = this.metrics.startTimer();
+        double result = this.getReport().getMaxAmount();
+        this.metrics.stopTimer("fetcher.getMaxTransactionAmount", start);
+        return result;
+    }
+
+    /**
+     * Streaming counterpart of {@link #getMaxTransactionAmount()}: the file is parsed incrementally instead of being
+     * loaded into a snapshot, so memory use is bounded by the number of distinct MTNs rather than the size of the file.
+     *
+     * @return The maximum transaction amount or 0.0 if there are no transactions.
+     * @throws UncheckedIOException If the file cannot be read.
+     */
+    public double getMaxTransactionAmountStreaming() {
+        long start = this.metrics.startTimer();
+        try (Stream<Transaction> stream = this.reader.streamTransactions(this.filePath)) {
+            double result = this.maxAmount(stream);
+            this.metrics.stopTimer("fetcher.getMaxTransactionAmountStreaming", start);
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private double maxAmount(Stream<Transaction> transactions) {
+        // Set to track unique MTNs, without boxing them
+        IntHashSet uniqueMtns = new IntHashSet();
+        long[] scanned = {0};
 
-        return this.getAll().stream()
+        double max = transactions
                 // Filter transactions by unique MTNs
-                .filter(transaction -> uniqueMtns.add(transaction.getMtn()))
+                .filter(transaction -> {
+                    scanned[0]++;
+                    return uniqueMtns.add(transaction.getMtn());
+                })
                 // Map unique transactions to their amounts
                 .mapToDouble(Transaction::getAmount)
                 // Find the maximum amount, or return 0.0 if no transactions
                 .max()
                 .orElse(0.0);
+        this.recordRows("fetcher.getMaxTransactionAmountStreaming", scanned[0], scanned[0] - uniqueMtns.size());
+        return max;
     }
 
 
@@ -79,15 +341,10 @@ public class TransactionDataFetcher {
      * @return The count of unique clients.
      */
     public long countUniqueClients() {
-        // Set to track unique client names
-        Set<String> uniqueClients = this.getAll()
-                .stream()
-                // FlatMap to stream of sender and beneficiary names, filter out null values
-                .flatMap(transaction -> Stream.of(transaction.getSenderFullName(), transaction.getBeneficiaryFullName()))
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
-
-        return uniqueClients.size();
+        long start = this.metrics.startTimer();
+        long result = this.getReport().getClients().size();
+        this.metrics.stopTimer("fetcher.countUniqueClients", start);
+        return result;
     }
 
 
@@ -98,10 +355,62 @@ public class TransactionDataFetcher {
      * @return True if the client has open compliance issues, otherwise false.
      */
     public boolean hasOpenComplianceIssues(String clientFullName) {
-        return this.getAll().stream()
-                .anyMatch(transaction ->
-                        (clientFullName.equals(transaction.getSenderFullName()) || clientFullName.equals(transaction.getBeneficiaryFullName()))
-                                && transaction.hasOpenIssue());
+        long start = this.metrics.startTimer();
+        boolean result = this.getComplianceIssueIndex().getOpenIssueCount(clientFullName) > 0;
+        this.metrics.stopTimer("fetcher.hasOpenComplianceIssues", start);
+        return result;
+    }
+
+    /**
+     * Counts the open compliance issues of a client, examining both sender and beneficiary names.
+     *
+     * @param clientFullName The full name of the client.
+     * @return The number of open compliance issues on transactions the client sent or received.
+     */
+    public int countOpenComplianceIssues(String clientFullName) {
+        long start = this.metrics.startTimer();
+        int result = this.getComplianceIssueIndex().getOpenIssueCount(clientFullName);
+        this.metrics.stopTimer("fetcher.countOpenComplianceIssues", start);
+        return result;
+    }
+
+    /**
+     * Counts the open compliance issues on transactions a client sent, leaving out the ones it received.
+     *
+     * @param senderFullName The full name of the sender.
+     * @return The number of open compliance issues on transactions the sender sent.
+     */
+    public int countOpenComplianceIssuesSentBy(String senderFullName) {
+        long start = this.metrics.startTimer();
+        int result = this.getComplianceIssueIndex().getOpenIssueCountSentBy(senderFullName);
+        this.metrics.stopTimer("fetcher.countOpenComplianceIssuesSentBy", start);
+        return result;
+    }
+
+    /**
+     * Retrieves the compliance issues of a transaction, solved or not.
+     *
+     * @param mtn The MTN of the transaction.
+     * @return The issues of the transaction in file order, or an empty list if it has none or the MTN is unknown.
+     */
+    public List<ComplianceIssue> getComplianceIssuesForMtn(int mtn) {
+        long start = this.metrics.startTimer();
+        List<ComplianceIssue> result = this.getComplianceIssueIndex().getIssuesForMtn(mtn);
+        this.metrics.stopTimer("fetcher.getComplianceIssuesForMtn", start);
+        return result;
+    }
+
+    /**
+     * Lists the clients, senders or beneficiaries, with more than the given number of open compliance issues.
+     *
+     * @param threshold The number of open issues a client must exceed.
+     * @return The client names, by decreasing number of open issues, then by name.
+     */
+    public List<String> getClientsWithMoreOpenIssuesThan(int threshold) {
+        long start = this.metrics.startTimer();
+        List<String> result = this.getComplianceIssueIndex().getClientsWithMoreOpenIssuesThan(threshold);
+        this.metrics.stopTimer("fetcher.getClientsWithMoreOpenIssuesThan", start);
+        return result;
     }
 
 
@@ -111,11 +420,10 @@ public class TransactionDataFetcher {
      * @return A map where keys are beneficiary names, and values are lists of transactions associated with each beneficiary.
      */
     public Map<String, List<Transaction>> getTransactionsByBeneficiaryName() {
-        Set<Integer> uniqueMtns = new HashSet<>();
-        return this.getAll()
-                .stream()
-                .filter(transaction -> uniqueMtns.add(transaction.getMtn()))
-                .collect(Collectors.groupingBy(Transaction::getBeneficiaryFullName));
+        long start = this.metrics.startTimer();
+        Map<String, List<Transaction>> result = this.getReport().getTransactionsByBeneficiaryName();
+        this.metrics.stopTimer("fetcher.getTransactionsByBeneficiaryName", start);
+        return result;
     }
 
 
@@ -125,22 +433,23 @@ public class TransactionDataFetcher {
      * @return A set containing unique issue IDs associated with unsolved issues in the transactions.
      */
     public Set<Integer> getUnsolvedIssueIds() {
-        return this.getAll().stream()
-                .filter(Transaction::hasOpenIssue)
-                .map(Transaction::getIssueId)
-                .collect(Collectors.toSet());
+        long start = this.metrics.startTimer();
+        Set<Integer> result = this.getReport().getUnsolvedIssueIds();
+        this.metrics.stopTimer("fetcher.getUnsolvedIssueIds", start);
+        return result;
     }
 
     /**
      * Retrieves a list of all solved issue messages from the transactions.
      *
-     * @return A list containing all solved issue messages from the transactions.
+     * @return A list containing all solved issue messages from the transactions, grouped by MTN in the order the MTNs
+     * first appear in the file.
      */
     public List<String> getAllSolvedIssueMessages() {
-        return this.getAll().stream()
-                .filter(transaction -> transaction.isIssueSolved() && transaction.getIssueMessage() != null)
-                .map(Transaction::getIssueMessage)
-                .collect(Collectors.toList());
+        long start = this.metrics.startTimer();
+        List<String> result = this.getReport().getSolvedIssueMessages();
+        this.metrics.stopTimer("fetcher.getAllSolvedIssueMessages", start);
+        return result;
     }
 
     /**
@@ -149,21 +458,289 @@ public class TransactionDataFetcher {
      * @return A list containing the top 3 transactions by amount.
      */
     public List<Transaction> getTop3TransactionsByAmount() {
-        Set<Integer> uniqueMtns = new HashSet<>();
-        return this.getAll()
-                .stream()
-                .filter(transaction -> uniqueMtns.add(transaction.getMtn()))
-                .sorted(Comparator.comparingDouble(Transaction::getAmount).reversed())
-                .limit(3)
-                .collect(Collectors.toList());
+        long start = this.metrics.startTimer();
+        List<Transaction> result = this.getReport().getTopTransactionsByAmount();
+        this.metrics.stopTimer("fetcher.getTop3TransactionsByAmount", start);
+        return result;
+    }
+
+    /**
+     * Retrieves the K transactions with the highest amounts, considering unique MTNs, with a bounded heap instead of
+     * sorting every transaction. Ties on amount keep the transactions in file order.
+     *
+     * @param k The number of transactions to retrieve.
+     * @return A list containing at most k transactions, highest amount first.
+     * @throws IllegalArgumentException If k is negative.
+     */
+    public List<Transaction> getTopTransactionsByAmount(int k) {
+        requireNonNegative(k);
+        long start = this.metrics.startTimer();
+        List<Transaction> result;
+        if (k <= TOP_TRANSACTIONS_LIMIT) {
+            List<Transaction> top = this.getReport().getTopTransactionsByAmount();
+            result = top.subList(0, Math.min(k, top.size()));
+        } else {
+            TransactionColumnStore store = this.getColumnStore();
+            TopK top = TopK.select(Math.min(k, store.size()), (left, right) -> {
+                int order = Double.compare(store.getAmount(right), store.getAmount(left));
+                return order != 0 ? order : Integer.compare(left, right);
+            }, 0, store.size(), this.pool);
+            result = this.toTransactions(top.toSortedArray());
+            this.recordRows("fetcher.getTopTransactionsByAmount", store.size(), 0);
+        }
+        this.metrics.stopTimer("fetcher.getTopTransactionsByAmount", start);
+        return result;
+    }
+
+    /**
+     * Retrieves the K senders with the highest total amounts sent, considering unique MTNs. Ties are broken by name.
+     *
+     * @param k The number of senders to retrieve.
+     * @return A list containing at most k sender names, highest total first.
+     * @throws IllegalArgumentException If k is negative.
+     */
+    public List<String> getTopSenders(int k) {
+        requireNonNegative(k);
+        long start = this.metrics.startTimer();
+        TransactionColumnStore store = this.getColumnStore();
+        List<String> senders = new ArrayList<>();
+        for (int senderId : this.getIndexes().getTopSenderIds(k, this.pool)) {
+            senders.add(store.getName(senderId));
+        }
+        this.metrics.stopTimer("fetcher.getTopSenders", start);
+        return senders;
     }
 
+    /**
+     * Retrieves the sender with the highest total amount sent, considering unique MTNs: a transaction repeated once
+     * per issue counts its amount once. The first implementation summed every row instead, so a transaction with
+     * several issues counted several times; on the sample {@code transactions.json} this gives Arthur Shelby where
+     * the first implementation gave Grace Burgess. Senders with equal totals are ranked by name, the alphabetically
+     * first one winning, so the result does not depend on the order of the file.
+     *
+     * @return The name of the top sender, or an empty optional if there are no transactions.
+     */
     public Optional<Object> getTopSender() {
-        Map<String, Double> senderTotalAmounts = this.getAll().stream()
-                .collect(Collectors.groupingBy(Transaction::getSenderFullName, Collectors.summingDouble(Transaction::getAmount)));
+        long start = this.metrics.startTimer();
+        Optional<Object> result = this.getReport().getTopSender().map(Object.class::cast);
+        this.metrics.stopTimer("fetcher.getTopSender", start);
+        return result;
+    }
+
+    /**
+     * Selects the transactions matching a filter, considering only unique transactions based on their MTN.
+     * Predicates are pushed down below any aggregation: a sender or beneficiary name narrows the candidates to the
+     * rows of that client through the indexes, otherwise the min/max zone maps of each block of rows skip the blocks
+     * that cannot match. Only the remaining rows are evaluated, straight from the columns.
+     *
+     * @param filter The predicates the transactions must satisfy.
+     * @return The matching transactions, to aggregate or list.
+     */
+    public TransactionSelection select(TransactionFilter filter) {
+        long start = this.metrics.startTimer();
+        SnapshotView view = this.view();
+        TransactionColumnStore store = view.store;
+        TransactionIndexes indexes = view.indexes.get();
+        int[] candidates = null;
+        if (filter.getSenderFullName() != null) {
+            candidates = indexes.getRowsSentBy(filter.getSenderFullName());
+        }
+        if (filter.getBeneficiaryFullName() != null) {
+            int[] received = indexes.getRowsReceivedBy(filter.getBeneficiaryFullName());
+            candidates = candidates == null ? received : intersect(candidates, received);
+        }
+
+        int[] rows;
+        long scanned = 0;
+        if (candidates != null) {
+            rows = new int[candidates.length];
+            int matches = 0;
+            for (int row : candidates) {
+                if (filter.matchesRow(store, row)) {
+                    rows[matches++] = row;
+                }
+            }
+            scanned = candidates.length;
+            rows = Arrays.copyOf(rows, matches);
+        } else {
+            TransactionZoneMaps zoneMaps = view.zoneMaps.get();
+            rows = new int[16];
+            int matches = 0;
+            long skippedBlocks = 0;
+            for (int block = 0; block < zoneMaps.getBlockCount(); block++) {
+                TransactionZoneMaps.Coverage coverage = zoneMaps.getCoverage(filter, block);
+                if (coverage == TransactionZoneMaps.Coverage.NONE) {
+                    skippedBlocks++;
+                    continue;
+                }
+                int end = zoneMaps.getBlockEnd(block);
+                if (rows.length - matches < end - zoneMaps.getBlockStart(block)) {
+                    rows = Arrays.copyOf(rows, Math.max(rows.length * 2, matches + TransactionZoneMaps.BLOCK_SIZE));
+                }
+                for (int row = zoneMaps.getBlockStart(block); row < end; row++) {
+                    if (coverage == TransactionZoneMaps.Coverage.ALL || filter.matchesRow(store, row)) {
+                        rows[matches++] = row;
+                    }
+                }
+                if (coverage == TransactionZoneMaps.Coverage.SOME) {
+                    scanned += end - zoneMaps.getBlockStart(block);
+                }
+            }
+            rows = Arrays.copyOf(rows, matches);
+            if (this.metrics.isEnabled()) {
+                this.metrics.increment("fetcher.select.blocksSkipped", skippedBlocks);
+            }
+        }
+        this.recordRows("fetcher.select", scanned, 0);
+        this.metrics.stopTimer("fetcher.select", start);
+        return new TransactionSelection(store, indexes, rows);
+    }
+
+    /**
+     * Intersects two arrays of rows sorted in increasing order.
+     */
+    private static int[] intersect(int[] left, int[] right) {
+        int[] result = new int[Math.min(left.length, right.length)];
+        int size = 0;
+        for (int i = 0, j = 0; i < left.length && j < right.length; ) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[size++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Retrieves the sketches of the current snapshot behind the approximate queries, building them on first use.
+     * The sketches are shared by every query on the snapshot, so they must not be modified.
+     *
+     * @return The sketches for the current snapshot.
+     * @throws IllegalStateException If the fetcher was created without approximation settings.
+     */
+    ApproximateAggregates getApproximateAggregates() {
+        if (this.approximation == null) {
+            throw new IllegalStateException("Approximate queries are disabled, create the fetcher with ApproximationSettings");
+        }
+        return this.view().approximate.get();
+    }
+
+    /**
+     * Estimates the number of unique clients, senders or beneficiaries, within the configured relative error.
+     *
+     * @return The estimated count of unique clients.
+     * @throws IllegalStateException If the fetcher was created without approximation settings.
+     */
+    public long estimateUniqueClients() {
+        long start = this.metrics.startTimer();
+        long result = this.getApproximateAggregates().estimateUniqueClients();
+        this.metrics.stopTimer("fetcher.estimateUniqueClients", start);
+        return result;
+    }
+
+    /**
+     * Estimates a percentile of the transaction amounts, considering unique MTNs, within the configured relative accuracy.
+     *
+     * @param quantile The quantile, between 0 and 1, e.g. 0.95 for the 95th percentile.
+     * @return The estimated amount at the quantile, or 0.0 if there are no transactions.
+     * @throws IllegalStateException If the fetcher was created without approximation settings.
+     */
+    public double estimateAmountQuantile(double quantile) {
+        long start = this.metrics.startTimer();
+        double result = this.getApproximateAggregates().estimateAmountQuantile(quantile);
+        this.metrics.stopTimer("fetcher.estimateAmountQuantile", start);
+        return result;
+    }
+
+    /**
+     * Estimates the K senders with the highest total amounts sent, considering unique MTNs. Every sender whose total
+     * exceeds the configured share of the total amount is found; the order of close totals may differ from the exact
+     * {@link #getTopSenders(int)}.
+     *
+     * @param k The number of senders to retrieve.
+     * @return A list containing at most k sender names, highest estimated total first.
+     * @throws IllegalStateException If the fetcher was created without approximation settings.
+     */
+    public List<String> estimateTopSenders(int k) {
+        long start = this.metrics.startTimer();
+        List<String> result = this.getApproximateAggregates().estimateTopSenders(k);
+        this.metrics.stopTimer("fetcher.estimateTopSenders", start);
+        return result;
+    }
+
+    private static void requireNonNegative(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+    }
+
+    private void recordRows(String query, long rowsScanned, long rowsDeduplicated) {
+        if (this.metrics.isEnabled()) {
+            this.metrics.increment(query + ".rowsScanned", rowsScanned);
+            this.metrics.increment(query + ".rowsDeduplicated", rowsDeduplicated);
+        }
+    }
+
+    private static final class SnapshotView {
+        private final List<Transaction> source;
+        private final long version;
+        private final TransactionColumnStore store;
+        private final Lazy<TransactionReport> report;
+        private final Lazy<TransactionIndexes> indexes;
+        private final Lazy<TransactionZoneMaps> zoneMaps;
+        private final Lazy<ComplianceIssueIndex> issues;
+        private final Lazy<ApproximateAggregates> approximate;
 
-        return senderTotalAmounts.entrySet().stream()
-                .max(Comparator.comparingDouble(Map.Entry::getValue))
-                .map(Map.Entry::getKey);
+        private SnapshotView(List<Transaction> source, long version, ForkJoinPool pool, MetricsRegistry metrics,
+                             ApproximationSettings approximation) {
+            this.source = source;
+            this.version = version;
+            this.store = TransactionColumnStore.of(source);
+            this.indexes = new Lazy<>(() -> {
+                long start = metrics.startTimer();
+                TransactionIndexes built = TransactionIndexes.of(this.store);
+                metrics.stopTimer("fetcher.indexes.build", start);
+                metrics.increment("fetcher.indexes.rowsScanned", this.store.size());
+                return built;
+            });
+            this.zoneMaps = new Lazy<>(() -> {
+                long start = metrics.startTimer();
+                TransactionZoneMaps built = TransactionZoneMaps.of(this.store);
+                metrics.stopTimer("fetcher.zoneMaps.build", start);
+                return built;
+            });
+            this.issues = new Lazy<>(() -> {
+                long start = metrics.startTimer();
+                ComplianceIssueIndex built = ComplianceIssueIndex.of(this.store);
+                metrics.stopTimer("fetcher.issues.build", start);
+                metrics.increment("fetcher.issues.rowsScanned", this.store.size());
+                return built;
+            });
+            this.approximate = new Lazy<>(() -> {
+                long start = metrics.startTimer();
+                ApproximateAggregates built = ApproximateAggregates.of(this.store, approximation, pool);
+                metrics.stopTimer("fetcher.approximate.build", start);
+                return built;
+            });
+            this.report = new Lazy<>(() -> {
+                TransactionIndexes builtIndexes = this.indexes.get();
+                long start = metrics.startTimer();
+                TransactionReport built = pool == null
+                        ? TransactionAggregator.aggregate(this.store, builtIndexes, TOP_TRANSACTIONS_LIMIT)
+                        : TransactionAggregator.aggregate(this.store, builtIndexes, TOP_TRANSACTIONS_LIMIT, pool);
+                metrics.stopTimer("fetcher.report.build", start);
+                metrics.increment("fetcher.report.rowsScanned", this.store.size());
+                if (metrics.isEnabled()) {
+                    // Rows repeating an MTN once per extra issue, collapsed when the store was built
+                    metrics.increment("fetcher.report.rowsDeduplicated", this.store.getViewSize() - this.store.size());
+                }
+                return built;
+            });
+        }
     }
 }
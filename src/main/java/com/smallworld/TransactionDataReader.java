@@ -1,27 +1,602 @@
 package com.smallworld;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class TransactionDataReader {
-    private List<Transaction> data;
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ObjectReader TRANSACTION_READER = OBJECT_MAPPER.readerFor(Transaction.class);
+    private static final int APPEND_BUFFER_SIZE = 64 * 1024;
+    private static final Logger LOGGER = Logger.getLogger(TransactionDataReader.class.getName());
+    private static final String GLOB_CHARACTERS = "*?[{";
+    private static final Duration DEFAULT_SHARD_CHECK_INTERVAL = Duration.ofSeconds(1);
+
+    // Latest snapshot per source file, replaced atomically on reload
+    private final ConcurrentMap<Path, TransactionSnapshot> snapshots = new ConcurrentHashMap<>();
+    // Merged snapshots of sharded sources
+    private final ConcurrentMap<Path, TransactionSnapshot> shardedSnapshots = new ConcurrentHashMap<>();
+    // The load in progress per path, so concurrent callers wait for one parse instead of each parsing the file.
+    // Loads run outside the snapshot maps: parsing inside compute would hold a bin lock shared with other paths
+    private final ConcurrentMap<Path, FutureTask<TransactionSnapshot>> loading = new ConcurrentHashMap<>();
+    // When each sharded source was last checked for added, removed or modified shards, in System.nanoTime()
+    private final ConcurrentMap<Path, Long> shardsCheckedAt = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+    private final MetricsRegistry metrics;
+    private final int shardParallelism;
+    private final long shardCheckIntervalNanos;
+    private ExecutorService shardExecutor;
+
+    public TransactionDataReader() {
+        this(MetricsRegistry.NOOP);
+    }
+
+    /**
+     * Creates a reader recording its loads in the given registry: {@code reader.load} times every load, and the
+     * {@code reader.bytes}, {@code reader.records} and {@code reader.loadFailures} counters track what was read.
+     * Records per second are {@code snapshot.getRatePerSecond("reader.records", "reader.load")}.
+     *
+     * @param metrics The registry receiving the metrics.
+     */
+    public TransactionDataReader(MetricsRegistry metrics) {
+        this(metrics, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param metrics          The registry receiving the metrics.
+     * @param shardParallelism The maximum number of shards of a sharded source parsed at the same time.
+     */
+    public TransactionDataReader(MetricsRegistry metrics, int shardParallelism) {
+        this(metrics, shardParallelism, DEFAULT_SHARD_CHECK_INTERVAL);
+    }
+
+    /**
+     * @param metrics            The registry receiving the metrics.
+     * @param shardParallelism   The maximum number of shards of a sharded source parsed at the same time.
+     * @param shardCheckInterval The minimum time between two checks of a sharded source for changed shards. Checking
+     *                           lists the directory or walks the glob and reads the attributes of every shard, so
+     *                           reads in between return the current snapshot as it is; {@link #refresh(String)}
+     *                           always checks.
+     */
+    public TransactionDataReader(MetricsRegistry metrics, int shardParallelism, Duration shardCheckInterval) {
+        if (shardParallelism <= 0) {
+            throw new IllegalArgumentException("shardParallelism must be positive: " + shardParallelism);
+        }
+        if (shardCheckInterval.isNegative()) {
+            throw new IllegalArgumentException("shardCheckInterval must not be negative: " + shardCheckInterval);
+        }
+        this.metrics = metrics;
+        this.shardParallelism = shardParallelism;
+        this.shardCheckIntervalNanos = shardCheckInterval.toNanos();
+    }
+
+    /**
+     * Reads the transactions stored in the given file. The file is parsed only on the first call and whenever its
+     * modification time or size changes; every other call returns the transactions of the current snapshot.
+     * Binary snapshots written by {@link #writeBinarySnapshot(String, String)} are memory-mapped instead of parsed.
+     * <p>
+     * The path may also name a sharded source: a directory, whose regular non-hidden files are the shards, or a glob
+     * pattern such as {@code data/transactions-*.json}. Shards are parsed in parallel and merged in file name order;
+     * an MTN spread over several shards keeps the values of the first one and the issues of all of them. A sharded
+     * source is checked for changes at most once per shard check interval, one second by default.
+     *
+     * @param filePath The path of the JSON file containing the transactions.
+     * @return An immutable list with the transactions of the current snapshot, grouped by MTN as described in
+     * {@link TransactionColumnStore#asList()}, or an empty list if the file cannot be read.
+     */
     public List<Transaction> readTransactionsFromFile(String filePath) {
+        TransactionSnapshot snapshot = getSnapshot(filePath);
+        return snapshot != null ? snapshot.getTransactions() : Collections.emptyList();
+    }
+
+    /**
+     * Retrieves the current snapshot of the given file, reloading it first if the file changed on disk.
+     * Callers holding a previous snapshot keep using it undisturbed while the new one is swapped in.
+     *
+     * @param filePath The path of the JSON file containing the transactions.
+     * @return The current snapshot, or null if the file has never been read successfully.
+     */
+    public TransactionSnapshot getSnapshot(String filePath) {
+        Path path = normalize(filePath);
+        if (isSharded(path)) {
+            TransactionSnapshot current = this.shardedSnapshots.get(path);
+            if (current != null && (!isShardCheckDue(path) || isCurrentSharded(current))) {
+                return current;
+            }
+            return reload(this.shardedSnapshots, path, false, existing ->
+                    existing != null && isCurrentSharded(existing) ? existing : loadSharded(path, existing));
+        }
+        TransactionSnapshot current = this.snapshots.get(path);
+        if (current != null && isCurrent(current)) {
+            return current;
+        }
+        return reload(this.snapshots, path, false, existing ->
+                existing != null && isCurrent(existing) ? existing : load(path, existing));
+    }
+
+    /**
+     * Forces the given file to be parsed again, regardless of its modification time or size.
+     *
+     * @param filePath The path of the JSON file containing the transactions.
+     * @return The reloaded snapshot, or the previous one (possibly null) if the file cannot be read.
+     */
+    public TransactionSnapshot refresh(String filePath) {
+        Path path = normalize(filePath);
+        if (isSharded(path)) {
+            return reload(this.shardedSnapshots, path, true, existing -> {
+                // Force every shard to be parsed again, not only the merge
+                for (Path shard : existing != null ? existing.getShardPaths() : List.<Path>of()) {
+                    refresh(shard.toString());
+                }
+                return loadSharded(path, existing);
+            });
+        }
+        return reload(this.snapshots, path, true, existing -> load(path, existing));
+    }
 
+    /**
+     * Runs a load of a path and publishes its snapshot, unless a load of the same path is already in progress, in
+     * which case the caller waits for that one instead. Only one load per path runs at a time, so snapshots are
+     * published in load order.
+     *
+     * @param snapshots The map the snapshot is published to.
+     * @param path      The path to load.
+     * @param force     True to run a load of its own even if one was in progress, once that one completes.
+     * @param loader    Computes the new snapshot from the current one, possibly null; may return the current one.
+     * @return The published snapshot.
+     */
+    private TransactionSnapshot reload(ConcurrentMap<Path, TransactionSnapshot> snapshots, Path path, boolean force,
+                                       UnaryOperator<TransactionSnapshot> loader) {
+        FutureTask<TransactionSnapshot> task = new FutureTask<>(() -> {
+            TransactionSnapshot loaded = loader.apply(snapshots.get(path));
+            if (loaded != null) {
+                snapshots.put(path, loaded);
+            }
+            return loaded;
+        });
+        while (true) {
+            FutureTask<TransactionSnapshot> running = this.loading.putIfAbsent(path, task);
+            if (running == null) {
+                try {
+                    task.run();
+                } finally {
+                    this.loading.remove(path, task);
+                }
+                return await(task, snapshots, path);
+            }
+            TransactionSnapshot awaited = await(running, snapshots, path);
+            if (!force) {
+                return awaited;
+            }
+        }
+    }
+
+    private static TransactionSnapshot await(FutureTask<TransactionSnapshot> task, ConcurrentMap<Path, TransactionSnapshot> snapshots,
+                                             Path path) {
         try {
-            if (this.data == null || this.data.isEmpty() ){
-                ObjectMapper objectMapper = new ObjectMapper();
-                return List.of(objectMapper.readValue(Paths.get(filePath).toFile(), Transaction[].class));
+            return task.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
             }
-            return this.data;
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return snapshots.get(path);
+        }
+    }
+
+    /**
+     * Converts the current snapshot of a file into a binary snapshot, which later reads open with
+     * {@link java.nio.channels.FileChannel#map} instead of parsing JSON.
+     *
+     * @param filePath     The path of the JSON file containing the transactions.
+     * @param snapshotPath The path of the binary snapshot to create or replace.
+     * @throws IOException If the source cannot be read or the snapshot cannot be written.
+     */
+    public void writeBinarySnapshot(String filePath, String snapshotPath) throws IOException {
+        TransactionSnapshot snapshot = getSnapshot(filePath);
+        if (snapshot == null) {
+            throw new IOException("Cannot read transactions from " + filePath);
+        }
+        TransactionSnapshotFile.write(snapshot.getStore(), Paths.get(snapshotPath));
+    }
+
+    /**
+     * Parses the given file incrementally and hands every transaction to the consumer as soon as it is read.
+     * Only one transaction is held in memory at a time, so files much larger than the heap can be processed.
+     * Both a top-level JSON array and a sequence of top-level objects (NDJSON) are accepted.
+     *
+     * @param filePath The path of the JSON file containing the transactions.
+     * @param consumer The consumer receiving each transaction in file order.
+     * @throws IOException If the file cannot be opened or is not valid JSON.
+     */
+    public void forEachTransaction(String filePath, Consumer<? super Transaction> consumer) throws IOException {
+        Path path = normalize(filePath);
+        if (isSharded(path)) {
+            // Shards are read one after the other; an MTN spread over several shards is seen once per shard
+            for (Path shard : resolveShards(path)) {
+                forEachTransaction(shard.toString(), consumer);
+            }
+            return;
+        }
+        try (JsonParser parser = openParser(filePath)) {
+            Transaction transaction;
+            while ((transaction = nextTransaction(parser, TRANSACTION_READER)) != null) {
+                consumer.accept(transaction);
+            }
+        }
+    }
 
+    /**
+     * Opens a lazily populated stream over the transactions of the given file, parsing them one at a time as the
+     * stream is consumed. The returned stream holds the file open and must be closed, e.g. with try-with-resources.
+     *
+     * @param filePath The path of the JSON file containing the transactions.
+     * @return A sequential stream of the transactions in file order.
+     * @throws IOException If the file cannot be opened.
+     */
+    public Stream<Transaction> streamTransactions(String filePath) throws IOException {
+        Path path = normalize(filePath);
+        if (isSharded(path)) {
+            // Each shard is opened only once the previous one is exhausted
+            return resolveShards(path).stream().flatMap(shard -> {
+                try {
+                    return streamTransactions(shard.toString());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        JsonParser parser = openParser(filePath);
+        Spliterator<Transaction> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Transaction> action) {
+                try {
+                    Transaction transaction = nextTransaction(parser, TRANSACTION_READER);
+                    if (transaction == null) {
+                        return false;
+                    }
+                    action.accept(transaction);
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false)
+                .onClose(() -> {
+                    try {
+                        parser.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * Parses the records appended to a newline-delimited JSON file (one transaction object per line) after the given
+     * position. Only complete lines are consumed, so a record still being written is picked up by the next call.
+     * A complete line that is not a valid transaction is logged, counted in {@code reader.malformedLines} and
+     * skipped, so the returned position always moves past every line handed to the consumer.
+     *
+     * @param filePath The path of the NDJSON file.
+     * @param position The position to resume from, as returned by the previous call, or 0 to start at the beginning.
+     * @param consumer The consumer receiving each new transaction in file order.
+     * @return The position after the last complete line, to pass to the next call.
+     * @throws IOException If the file cannot be read.
+     */
+    public long readAppendedTransactions(String filePath, long position, Consumer<? super Transaction> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            if (channel.size() < position) {
+                throw new IOException("File " + filePath + " shrank below position " + position + ", it was truncated or replaced");
+            }
+            channel.position(position);
+            // The buffer starts with the incomplete line, if any, and grows when a single line does not fit
+            byte[] buffer = new byte[APPEND_BUFFER_SIZE];
+            int length = 0;
+            // Bytes of the incomplete line already known to hold no newline
+            int scanned = 0;
+            long consumed = position;
+            while (true) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                int read = channel.read(ByteBuffer.wrap(buffer, length, buffer.length - length));
+                if (read < 0) {
+                    return consumed;
+                }
+                length += read;
+                int lineStart = 0;
+                for (int index = scanned; index < length; index++) {
+                    if (buffer[index] == '\n') {
+                        if (!isBlank(buffer, lineStart, index)) {
+                            Transaction transaction = parseLine(buffer, lineStart, index, consumed, filePath);
+                            if (transaction != null) {
+                                consumer.accept(transaction);
+                            }
+                        }
+                        consumed += index + 1 - lineStart;
+                        lineStart = index + 1;
+                    }
+                }
+                System.arraycopy(buffer, lineStart, buffer, 0, length - lineStart);
+                length -= lineStart;
+                scanned = length;
+            }
+        }
+    }
+
+    /**
+     * @return The transaction of the line, or null if it is malformed.
+     */
+    private Transaction parseLine(byte[] buffer, int from, int to, long offset, String filePath) {
+        try {
+            return TRANSACTION_READER.readValue(buffer, from, to - from);
         } catch (IOException e) {
-            e.printStackTrace();
-            return Collections.emptyList();
+            this.metrics.increment("reader.malformedLines", 1);
+            LOGGER.log(Level.WARNING, e, () -> "Skipping malformed line at offset " + offset + " of " + filePath);
+            return null;
         }
     }
+
+    private static boolean isBlank(byte[] bytes, int from, int to) {
+        for (int index = from; index < to; index++) {
+            byte b = bytes[index];
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\f' && b != 0x0B) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static JsonParser openParser(String filePath) throws IOException {
+        return OBJECT_MAPPER.getFactory().createParser(Paths.get(filePath).toFile());
+    }
+
+    /**
+     * Binds the next transaction object from the parser, stepping over the enclosing array brackets if present.
+     *
+     * @return The next transaction, or null once the input is exhausted.
+     */
+    private static Transaction nextTransaction(JsonParser parser, ObjectReader reader) throws IOException {
+        JsonToken token = parser.nextToken();
+        // Step into the enclosing array, if any, so the current token is the start of a transaction object
+        while (token == JsonToken.START_ARRAY || token == JsonToken.END_ARRAY) {
+            token = parser.nextToken();
+        }
+        if (token == null) {
+            return null;
+        }
+        return reader.readValue(parser);
+    }
+
+    private TransactionSnapshot load(Path path, TransactionSnapshot previous) {
+        long start = this.metrics.startTimer();
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            TransactionColumnStore store = loadStore(path);
+            this.metrics.stopTimer("reader.load", start);
+            this.metrics.increment("reader.bytes", attributes.size());
+            return new TransactionSnapshot(path, this.versions.incrementAndGet(),
+                    attributes.lastModifiedTime(), attributes.size(), store);
+        } catch (IOException e) {
+            this.metrics.increment("reader.loadFailures", 1);
+            LOGGER.log(Level.WARNING, e, () -> "Cannot load transactions from " + path
+                    + (previous != null ? ", keeping snapshot version " + previous.getVersion() : ""));
+            // Keep serving the last good snapshot rather than dropping the data
+            return previous;
+        }
+    }
+
+    /**
+     * Loads every shard of a sharded source in parallel and merges them. Shards that did not change since the
+     * previous load reuse their snapshot, so only the modified ones are parsed again.
+     */
+    private TransactionSnapshot loadSharded(Path path, TransactionSnapshot previous) {
+        long start = this.metrics.startTimer();
+        // Loading resolves the shards afresh, which counts as a check
+        this.shardsCheckedAt.put(path, System.nanoTime());
+        try {
+            List<Path> shardPaths = resolveShards(path);
+            List<Future<TransactionSnapshot>> pending = new ArrayList<>(shardPaths.size());
+            for (Path shard : shardPaths) {
+                pending.add(shardExecutor().submit(() -> getSnapshot(shard.toString())));
+            }
+            List<TransactionSnapshot> shards = new ArrayList<>(shardPaths.size());
+            for (int i = 0; i < pending.size(); i++) {
+                TransactionSnapshot shard = pending.get(i).get();
+                if (shard == null) {
+                    throw new IOException("Cannot load shard " + shardPaths.get(i));
+                }
+                shards.add(shard);
+            }
+            TransactionColumnStore store = TransactionColumnStore.merge(shards.stream()
+                    .map(TransactionSnapshot::getStore)
+                    .collect(Collectors.toList()));
+            this.metrics.stopTimer("reader.loadSharded", start);
+            FileTime lastModifiedTime = shards.stream()
+                    .map(TransactionSnapshot::getLastModifiedTime)
+                    .max(FileTime::compareTo)
+                    .orElse(FileTime.fromMillis(0));
+            long size = shards.stream().mapToLong(TransactionSnapshot::getSize).sum();
+            return new TransactionSnapshot(path, this.versions.incrementAndGet(), lastModifiedTime, size, store, shards);
+        } catch (IOException | ExecutionException e) {
+            this.metrics.increment("reader.loadFailures", 1);
+            LOGGER.log(Level.WARNING, e, () -> "Cannot load transaction shards from " + path
+                    + (previous != null ? ", keeping snapshot version " + previous.getVersion() : ""));
+            return previous;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return previous;
+        }
+    }
+
+    private synchronized ExecutorService shardExecutor() {
+        if (this.shardExecutor == null) {
+            this.shardExecutor = Executors.newFixedThreadPool(this.shardParallelism, task -> {
+                Thread thread = new Thread(task, "transaction-shard-reader");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return this.shardExecutor;
+    }
+
+    private TransactionColumnStore loadStore(Path path) throws IOException {
+        if (TransactionSnapshotFile.isSnapshot(path)) {
+            // Binary snapshots are mapped as they are, nothing is parsed; counting the records scans the issue offsets
+            TransactionColumnStore store = TransactionSnapshotFile.open(path);
+            if (this.metrics.isEnabled()) {
+                this.metrics.increment("reader.records", store.getViewSize());
+            }
+            return store;
+        }
+        // Stream the rows straight into the columnar store instead of materializing them first, interning names and
+        // messages into the dictionaries of the store as they are parsed
+        TransactionColumnStore.Builder builder = TransactionColumnStore.builder();
+        ObjectReader reader = TRANSACTION_READER
+                .withAttribute(InterningStringDeserializer.Dictionary.NAMES, builder.getNames())
+                .withAttribute(InterningStringDeserializer.Dictionary.MESSAGES, builder.getMessages());
+        long records = 0;
+        try (JsonParser parser = openParser(path.toString())) {
+            Transaction transaction;
+            while ((transaction = nextTransaction(parser, reader)) != null) {
+                builder.accept(transaction);
+                records++;
+            }
+        }
+        this.metrics.increment("reader.records", records);
+        return builder.build();
+    }
+
+    private static boolean isCurrent(TransactionSnapshot snapshot) {
+        try {
+            return snapshot.isCurrent(Files.readAttributes(snapshot.getPath(), BasicFileAttributes.class));
+        } catch (IOException e) {
+            // The file disappeared or became unreadable: keep the snapshot we already have
+            return true;
+        }
+    }
+
+    /**
+     * Claims the next check of a sharded source if the check interval elapsed since the last one. Only the caller
+     * winning the claim checks; the others keep the current snapshot meanwhile.
+     */
+    private boolean isShardCheckDue(Path path) {
+        long now = System.nanoTime();
+        Long checkedAt = this.shardsCheckedAt.get(path);
+        if (checkedAt != null && now - checkedAt < this.shardCheckIntervalNanos) {
+            return false;
+        }
+        return checkedAt == null ? this.shardsCheckedAt.putIfAbsent(path, now) == null : this.shardsCheckedAt.replace(path, checkedAt, now);
+    }
+
+    /**
+     * A sharded snapshot is current while the source resolves to the same shards and none of them changed.
+     */
+    private boolean isCurrentSharded(TransactionSnapshot snapshot) {
+        try {
+            if (!resolveShards(snapshot.getPath()).equals(snapshot.getShardPaths())) {
+                return false;
+            }
+        } catch (IOException e) {
+            // The directory disappeared or became unreadable: keep the snapshot we already have
+            return true;
+        }
+        for (TransactionSnapshot shard : snapshot.getShards()) {
+            if (!isCurrent(shard)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A path is sharded if it names a directory, or a glob pattern. Glob characters are legal in file names, so a path
+     * naming an existing regular file, e.g. {@code transactions[2024].json}, is always read as that file.
+     */
+    private static boolean isSharded(Path path) {
+        if (Files.isRegularFile(path)) {
+            return false;
+        }
+        return Files.isDirectory(path) || path.toString().chars().anyMatch(c -> GLOB_CHARACTERS.indexOf(c) >= 0);
+    }
+
+    /**
+     * Lists the shards of a directory or glob pattern, sorted by path so the merge order is stable.
+     */
+    private static List<Path> resolveShards(Path source) throws IOException {
+        if (Files.isDirectory(source)) {
+            try (Stream<Path> files = Files.list(source)) {
+                return files.filter(TransactionDataReader::isShardFile)
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+        }
+        // Walk from the deepest directory free of glob characters, matching the full pattern
+        Path base = source.getRoot();
+        for (Path name : source) {
+            if (name.toString().chars().anyMatch(c -> GLOB_CHARACTERS.indexOf(c) >= 0)) {
+                break;
+            }
+            base = base.resolve(name);
+        }
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + source);
+        try (Stream<Path> files = Files.walk(base)) {
+            return files.filter(matcher::matches)
+                    .filter(TransactionDataReader::isShardFile)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static boolean isShardFile(Path path) {
+        return Files.isRegularFile(path) && !path.getFileName().toString().startsWith(".");
+    }
+
+    private static Path normalize(String filePath) {
+        return Paths.get(filePath).toAbsolutePath().normalize();
+    }
 }
@@ -0,0 +1,265 @@
+package com.smallworld;
+
+import java.util.Objects;
+
+/**
+ * Immutable conjunction of predicates on the fields of a transaction, passed to
+ * {@link TransactionDataFetcher#select(TransactionFilter)}. Every predicate left unset matches any transaction.
+ * <p>
+ * Ranges are inclusive. Filters are compared by value, so equal filters share cached results.
+ */
+public final class TransactionFilter {
+    /**
+     * Issue state of a transaction, over all the issues of its MTN.
+     */
+    public enum IssueState {
+        // Any transaction, whatever its issues
+        ANY,
+        // Transactions without any issue
+        NONE,
+        // Transactions with at least one unsolved issue
+        OPEN,
+        // Transactions with issues, all of them solved
+        SOLVED
+    }
+
+    public static final TransactionFilter ALL = builder().build();
+
+    private final double minAmount;
+    private final double maxAmount;
+    private final int minSenderAge;
+    private final int maxSenderAge;
+    private final int minBeneficiaryAge;
+    private final int maxBeneficiaryAge;
+    private final int minMtn;
+    private final int maxMtn;
+    private final String senderFullName;
+    private final String beneficiaryFullName;
+    private final IssueState issueState;
+
+    private TransactionFilter(Builder builder) {
+        this.minAmount = builder.minAmount;
+        this.maxAmount = builder.maxAmount;
+        this.minSenderAge = builder.minSenderAge;
+        this.maxSenderAge = builder.maxSenderAge;
+        this.minBeneficiaryAge = builder.minBeneficiaryAge;
+        this.maxBeneficiaryAge = builder.maxBeneficiaryAge;
+        this.minMtn = builder.minMtn;
+        this.maxMtn = builder.maxMtn;
+        this.senderFullName = builder.senderFullName;
+        this.beneficiaryFullName = builder.beneficiaryFullName;
+        this.issueState = builder.issueState;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Evaluates the range and issue predicates on a row of a store. Names are not checked here: they are resolved
+     * through the sender and beneficiary indexes before any row is read.
+     *
+     * @param store The store holding the row.
+     * @param row   The row to evaluate.
+     * @return True if the row satisfies every range and the issue state.
+     */
+    boolean matchesRow(TransactionColumnStore store, int row) {
+        double amount = store.getAmount(row);
+        int senderAge = store.getSenderAge(row);
+        int beneficiaryAge = store.getBeneficiaryAge(row);
+        int mtn = store.getMtn(row);
+        return amount >= minAmount && amount <= maxAmount
+                && senderAge >= minSenderAge && senderAge <= maxSenderAge
+                && beneficiaryAge >= minBeneficiaryAge && beneficiaryAge <= maxBeneficiaryAge
+                && mtn >= minMtn && mtn <= maxMtn
+                && matchesIssueState(store, row);
+    }
+
+    private boolean matchesIssueState(TransactionColumnStore store, int row) {
+        if (issueState == IssueState.ANY) {
+            return true;
+        }
+        int start = store.getIssueStart(row);
+        int end = store.getIssueEnd(row);
+        if (start == end) {
+            return issueState == IssueState.NONE;
+        }
+        boolean open = false;
+        for (int issue = start; issue < end && !open; issue++) {
+            open = !store.isIssueSolved(issue);
+        }
+        return open ? issueState == IssueState.OPEN : issueState == IssueState.SOLVED;
+    }
+
+    double getMinAmount() {
+        return minAmount;
+    }
+
+    double getMaxAmount() {
+        return maxAmount;
+    }
+
+    int getMinSenderAge() {
+        return minSenderAge;
+    }
+
+    int getMaxSenderAge() {
+        return maxSenderAge;
+    }
+
+    int getMinBeneficiaryAge() {
+        return minBeneficiaryAge;
+    }
+
+    int getMaxBeneficiaryAge() {
+        return maxBeneficiaryAge;
+    }
+
+    int getMinMtn() {
+        return minMtn;
+    }
+
+    int getMaxMtn() {
+        return maxMtn;
+    }
+
+    public String getSenderFullName() {
+        return senderFullName;
+    }
+
+    public String getBeneficiaryFullName() {
+        return beneficiaryFullName;
+    }
+
+    public IssueState getIssueState() {
+        return issueState;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof TransactionFilter)) {
+            return false;
+        }
+        TransactionFilter filter = (TransactionFilter) other;
+        return Double.compare(minAmount, filter.minAmount) == 0 && Double.compare(maxAmount, filter.maxAmount) == 0
+                && minSenderAge == filter.minSenderAge && maxSenderAge == filter.maxSenderAge
+                && minBeneficiaryAge == filter.minBeneficiaryAge && maxBeneficiaryAge == filter.maxBeneficiaryAge
+                && minMtn == filter.minMtn && maxMtn == filter.maxMtn
+                && Objects.equals(senderFullName, filter.senderFullName)
+                && Objects.equals(beneficiaryFullName, filter.beneficiaryFullName)
+                && issueState == filter.issueState;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(minAmount, maxAmount, minSenderAge, maxSenderAge, minBeneficiaryAge, maxBeneficiaryAge,
+                minMtn, maxMtn, senderFullName, beneficiaryFullName, issueState);
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionFilter{" +
+                "amount=[" + minAmount + ", " + maxAmount + "]" +
+                ", senderAge=[" + minSenderAge + ", " + maxSenderAge + "]" +
+                ", beneficiaryAge=[" + minBeneficiaryAge + ", " + maxBeneficiaryAge + "]" +
+                ", mtn=[" + minMtn + ", " + maxMtn + "]" +
+                ", senderFullName='" + senderFullName + '\'' +
+                ", beneficiaryFullName='" + beneficiaryFullName + '\'' +
+                ", issueState=" + issueState +
+                '}';
+    }
+
+    /**
+     * Collects the predicates of a {@link TransactionFilter}. Setting the same predicate twice keeps the last value;
+     * the bounds of a range can also be set one at a time, e.g. {@code amountAtLeast(100).amountAtMost(500)}.
+     */
+    public static final class Builder {
+        private double minAmount = Double.NEGATIVE_INFINITY;
+        private double maxAmount = Double.POSITIVE_INFINITY;
+        private int minSenderAge = Integer.MIN_VALUE;
+        private int maxSenderAge = Integer.MAX_VALUE;
+        private int minBeneficiaryAge = Integer.MIN_VALUE;
+        private int maxBeneficiaryAge = Integer.MAX_VALUE;
+        private int minMtn = Integer.MIN_VALUE;
+        private int maxMtn = Integer.MAX_VALUE;
+        private String senderFullName;
+        private String beneficiaryFullName;
+        private IssueState issueState = IssueState.ANY;
+
+        private Builder() {
+        }
+
+        public Builder amountBetween(double min, double max) {
+            this.minAmount = min;
+            this.maxAmount = max;
+            return this;
+        }
+
+        /**
+         * Sets the lower bound of the amount only, so it composes with {@link #amountAtMost(double)}.
+         *
+         * @param min The lowest amount selected.
+         * @return This builder.
+         */
+        public Builder amountAtLeast(double min) {
+            this.minAmount = min;
+            return this;
+        }
+
+        /**
+         * Sets the upper bound of the amount only, so it composes with {@link #amountAtLeast(double)}.
+         *
+         * @param max The highest amount selected.
+         * @return This builder.
+         */
+        public Builder amountAtMost(double max) {
+            this.maxAmount = max;
+            return this;
+        }
+
+        public Builder senderAgeBetween(int min, int max) {
+            this.minSenderAge = min;
+            this.maxSenderAge = max;
+            return this;
+        }
+
+        public Builder beneficiaryAgeBetween(int min, int max) {
+            this.minBeneficiaryAge = min;
+            this.maxBeneficiaryAge = max;
+            return this;
+        }
+
+        /**
+         * Restricts the transactions to a window of MTNs. The source has no timestamp, and MTNs are issued in
+         * increasing order, so an MTN window stands for a time window.
+         *
+         * @param min The first MTN of the window.
+         * @param max The last MTN of the window.
+         * @return This builder.
+         */
+        public Builder mtnBetween(int min, int max) {
+            this.minMtn = min;
+            this.maxMtn = max;
+            return this;
+        }
+
+        public Builder sentBy(String senderFullName) {
+            this.senderFullName = senderFullName;
+            return this;
+        }
+
+        public Builder receivedBy(String beneficiaryFullName) {
+            this.beneficiaryFullName = beneficiaryFullName;
+            return this;
+        }
+
+        public Builder issueState(IssueState issueState) {
+            this.issueState = Objects.requireNonNull(issueState, "issueState");
+            return this;
+        }
+
+        public TransactionFilter build() {
+            return new TransactionFilter(this);
+        }
+    }
+}
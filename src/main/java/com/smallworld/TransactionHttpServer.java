@@ -0,0 +1,191 @@
+package com.smallworld;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Small local HTTP server exposing the {@link TransactionDataFetcher} queries as JSON, e.g. for load tests.
+ * Every exchange is handled on the request threads of a {@link TransactionQueryService}.
+ * <p>
+ * Endpoints, all answering GET requests:
+ * <pre>
+ *   /total-amount
+ *   /total-amount-sent-by?name=...
+ *   /max-amount
+ *   /unique-clients
+ *   /open-compliance-issues?name=...
+ *   /open-compliance-issues-sent-by?name=...
+ *   /compliance-issues?mtn=...
+ *   /clients-with-open-issues?more-than=0
+ *   /transactions-by-beneficiary
+ *   /unsolved-issue-ids
+ *   /solved-issue-messages
+ *   /top-transactions?k=3            (k between 0 and 1000)
+ *   /top-sender
+ * </pre>
+ */
+public class TransactionHttpServer implements AutoCloseable {
+    // Transactions are written with the field names of the source file
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+            .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+
+    // Largest k served by /top-transactions, so one request cannot ask for every row
+    static final int MAX_TOP_TRANSACTIONS = 1_000;
+
+    private final HttpServer server;
+    private final Map<String, BiFunction<TransactionDataFetcher, Map<String, String>, Object>> routes = new LinkedHashMap<>();
+
+    private TransactionHttpServer(HttpServer server) {
+        this.server = server;
+        routes.put("/total-amount", (fetcher, parameters) -> fetcher.getTotalTransactionAmount());
+        routes.put("/total-amount-sent-by", (fetcher, parameters) -> fetcher.getTotalTransactionAmountSentBy(required(parameters, "name")));
+        routes.put("/max-amount", (fetcher, parameters) -> fetcher.getMaxTransactionAmount());
+        routes.put("/unique-clients", (fetcher, parameters) -> fetcher.countUniqueClients());
+        routes.put("/open-compliance-issues", (fetcher, parameters) -> fetcher.countOpenComplianceIssues(required(parameters, "name")));
+        routes.put("/open-compliance-issues-sent-by", (fetcher, parameters) -> fetcher.countOpenComplianceIssuesSentBy(required(parameters, "name")));
+        routes.put("/compliance-issues", (fetcher, parameters) -> fetcher.getComplianceIssuesForMtn(requiredInt(parameters, "mtn")));
+        routes.put("/clients-with-open-issues", (fetcher, parameters) -> fetcher.getClientsWithMoreOpenIssuesThan(intParameter(parameters, "more-than", 0)));
+        routes.put("/transactions-by-beneficiary", (fetcher, parameters) -> fetcher.getTransactionsByBeneficiaryName());
+        routes.put("/unsolved-issue-ids", (fetcher, parameters) -> fetcher.getUnsolvedIssueIds());
+        routes.put("/solved-issue-messages", (fetcher, parameters) -> fetcher.getAllSolvedIssueMessages());
+        routes.put("/top-transactions", (fetcher, parameters) -> fetcher.getTopTransactionsByAmount(intParameter(parameters, "k", 3, 0, MAX_TOP_TRANSACTIONS)));
+        routes.put("/top-sender", (fetcher, parameters) -> fetcher.getTopSender().orElse(null));
+    }
+
+    /**
+     * Starts serving the queries of a service on the loopback interface.
+     *
+     * @param service The service whose fetcher and request threads serve the exchanges.
+     * @param port    The port to listen on, or 0 for an ephemeral port.
+     * @return The running server.
+     * @throws IOException If the server cannot bind to the port.
+     */
+    public static TransactionHttpServer start(TransactionQueryService service, int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        TransactionHttpServer httpServer = new TransactionHttpServer(server);
+        server.createContext("/", exchange -> httpServer.handle(service.getFetcher(), exchange));
+        server.setExecutor(service.getExecutor());
+        server.start();
+        return httpServer;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(TransactionDataFetcher fetcher, HttpExchange exchange) throws IOException {
+        try (exchange) {
+            BiFunction<TransactionDataFetcher, Map<String, String>, Object> route = routes.get(exchange.getRequestURI().getPath());
+            if (route == null) {
+                respond(exchange, 404, error("Unknown endpoint, expected one of " + routes.keySet()));
+            } else if (!"GET".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, error("Only GET is supported"));
+            } else {
+                int status = 200;
+                byte[] json;
+                // Serialization fails inside the try too, so the client is answered before any header is sent
+                try {
+                    json = OBJECT_MAPPER.writeValueAsBytes(route.apply(fetcher, parameters(exchange.getRequestURI().getRawQuery())));
+                } catch (IllegalArgumentException e) {
+                    status = 400;
+                    json = OBJECT_MAPPER.writeValueAsBytes(error(message(e)));
+                } catch (Throwable e) {
+                    // Errors too, e.g. an OutOfMemoryError, so the client is always answered
+                    status = 500;
+                    json = OBJECT_MAPPER.writeValueAsBytes(error(e.toString()));
+                }
+                send(exchange, status, json);
+            }
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        send(exchange, status, OBJECT_MAPPER.writeValueAsBytes(body));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] json) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, json.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(json);
+        }
+    }
+
+    /**
+     * @return The message of the exception, or its class name when it has none, e.g. for a NullPointerException.
+     */
+    private static String message(Throwable e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+    }
+
+    private static Map<String, String> error(String message) {
+        return Map.of("error", message);
+    }
+
+    private static Map<String, String> parameters(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            String key = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            parameters.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static String required(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing query parameter: " + name);
+        }
+        return value;
+    }
+
+    private static int intParameter(Map<String, String> parameters, String name, int defaultValue, int min, int max) {
+        int value = intParameter(parameters, name, defaultValue);
+        if (value < min || value > max) {
+            throw new IllegalArgumentException("Query parameter " + name + " must be between " + min + " and " + max + ": " + value);
+        }
+        return value;
+    }
+
+    private static int requiredInt(Map<String, String> parameters, String name) {
+        required(parameters, name);
+        return intParameter(parameters, name, 0);
+    }
+
+    private static int intParameter(Map<String, String> parameters, String name, int defaultValue) {
+        String value = parameters.get(name);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Query parameter " + name + " must be an integer: " + value);
+        }
+    }
+
+    /**
+     * Stops the server, letting exchanges in progress complete for up to a second.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+    }
+}
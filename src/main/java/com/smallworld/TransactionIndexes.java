@@ -0,0 +1,167 @@
+package com.smallworld;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Immutable hash indexes over a {@link TransactionColumnStore}, built once per snapshot so point queries do not
+ * have to scan every row. Names are resolved to their dictionary id with a single hash lookup; the rows of each
+ * sender and beneficiary are then stored contiguously, in row order. Compliance issues are indexed separately by
+ * {@link ComplianceIssueIndex}.
+ */
+public final class TransactionIndexes {
+    private static final int[] NO_ROWS = new int[0];
+
+    private final TransactionColumnStore store;
+    // The rows of name id n are stored at positions [offsets[n], offsets[n + 1]) of the rows array
+    private final int[] senderOffsets;
+    private final int[] senderRows;
+    private final int[] beneficiaryOffsets;
+    private final int[] beneficiaryRows;
+    // Amounts sent by each name id, summed in row order
+    private final double[] senderTotals;
+
+    private TransactionIndexes(TransactionColumnStore store) {
+        this.store = store;
+        int names = store.getNameCount();
+        this.senderOffsets = new int[names + 1];
+        this.beneficiaryOffsets = new int[names + 1];
+        this.senderTotals = new double[names];
+
+        for (int row = 0; row < store.size(); row++) {
+            int senderId = store.getSenderId(row);
+            int beneficiaryId = store.getBeneficiaryId(row);
+            if (senderId != TransactionColumnStore.NO_NAME) {
+                senderOffsets[senderId + 1]++;
+                senderTotals[senderId] += store.getAmount(row);
+            }
+            if (beneficiaryId != TransactionColumnStore.NO_NAME) {
+                beneficiaryOffsets[beneficiaryId + 1]++;
+            }
+        }
+        for (int id = 0; id < names; id++) {
+            senderOffsets[id + 1] += senderOffsets[id];
+            beneficiaryOffsets[id + 1] += beneficiaryOffsets[id];
+        }
+
+        this.senderRows = new int[senderOffsets[names]];
+        this.beneficiaryRows = new int[beneficiaryOffsets[names]];
+        int[] nextSender = Arrays.copyOf(senderOffsets, names);
+        int[] nextBeneficiary = Arrays.copyOf(beneficiaryOffsets, names);
+        for (int row = 0; row < store.size(); row++) {
+            int senderId = store.getSenderId(row);
+            int beneficiaryId = store.getBeneficiaryId(row);
+            if (senderId != TransactionColumnStore.NO_NAME) {
+                senderRows[nextSender[senderId]++] = row;
+            }
+            if (beneficiaryId != TransactionColumnStore.NO_NAME) {
+                beneficiaryRows[nextBeneficiary[beneficiaryId]++] = row;
+            }
+        }
+    }
+
+    /**
+     * Builds the indexes for the given store in two passes over its rows.
+     *
+     * @param store The store to index.
+     * @return The indexes of the store.
+     */
+    public static TransactionIndexes of(TransactionColumnStore store) {
+        return new TransactionIndexes(store);
+    }
+
+    /**
+     * @param senderFullName The full name of the sender.
+     * @return The rows sent by the sender, in row order; empty if the sender is unknown.
+     */
+    public int[] getRowsSentBy(String senderFullName) {
+        return rowsOf(store.getNameId(senderFullName), senderOffsets, senderRows);
+    }
+
+    /**
+     * @param beneficiaryFullName The full name of the beneficiary.
+     * @return The rows received by the beneficiary, in row order; empty if the beneficiary is unknown.
+     */
+    public int[] getRowsReceivedBy(String beneficiaryFullName) {
+        return rowsOf(store.getNameId(beneficiaryFullName), beneficiaryOffsets, beneficiaryRows);
+    }
+
+    private static int[] rowsOf(int nameId, int[] offsets, int[] rows) {
+        return nameId == TransactionColumnStore.NO_NAME ? NO_ROWS : Arrays.copyOfRange(rows, offsets[nameId], offsets[nameId + 1]);
+    }
+
+    int getSenderStart(int senderId) {
+        return senderOffsets[senderId];
+    }
+
+    int getSenderEnd(int senderId) {
+        return senderOffsets[senderId + 1];
+    }
+
+    int getSenderRow(int position) {
+        return senderRows[position];
+    }
+
+    int getBeneficiaryStart(int beneficiaryId) {
+        return beneficiaryOffsets[beneficiaryId];
+    }
+
+    int getBeneficiaryEnd(int beneficiaryId) {
+        return beneficiaryOffsets[beneficiaryId + 1];
+    }
+
+    int getBeneficiaryRow(int position) {
+        return beneficiaryRows[position];
+    }
+
+    /**
+     * @param senderFullName The full name of the sender.
+     * @return The total amount sent by the sender, or 0.0 if the sender is unknown.
+     */
+    public double getTotalAmountSentBy(String senderFullName) {
+        int senderId = store.getNameId(senderFullName);
+        return senderId == TransactionColumnStore.NO_NAME ? 0.0 : senderTotals[senderId];
+    }
+
+    /**
+     * @param senderId A name id.
+     * @return The total amount sent by the name, or 0.0 if it never sent anything.
+     */
+    double getSenderTotal(int senderId) {
+        return senderTotals[senderId];
+    }
+
+    /**
+     * @param nameId A name id.
+     * @return True if the name is the sender of at least one row.
+     */
+    boolean isSender(int nameId) {
+        return senderOffsets[nameId + 1] > senderOffsets[nameId];
+    }
+
+    /**
+     * Selects the senders with the highest total amounts sent, ties broken by name.
+     *
+     * @param k    The number of senders to select.
+     * @param pool The pool selecting in parallel, or null to select on the calling thread.
+     * @return The name ids of the selected senders, highest total first.
+     */
+    public int[] getTopSenderIds(int k, ForkJoinPool pool) {
+        int[] top = TopK.select(Math.min(k, store.getNameCount()), this::compareSenders, 0, store.getNameCount(), pool).toSortedArray();
+        // Non-senders rank last, so they can only fill the tail of the selection when there are fewer than k senders
+        int senders = top.length;
+        while (senders > 0 && !isSender(top[senders - 1])) {
+            senders--;
+        }
+        return senders == top.length ? top : Arrays.copyOf(top, senders);
+    }
+
+    private int compareSenders(int left, int right) {
+        // Names that never sent anything rank last
+        int result = Boolean.compare(isSender(right), isSender(left));
+        if (result == 0) {
+            result = Double.compare(senderTotals[right], senderTotals[left]);
+        }
+        return result != 0 ? result : store.getName(left).compareTo(store.getName(right));
+    }
+}
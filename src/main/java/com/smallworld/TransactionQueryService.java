@@ -0,0 +1,110 @@
+package com.smallworld;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Thread-safe facade running queries against a shared {@link TransactionDataFetcher}, one task per request.
+ * <p>
+ * Requests run on virtual threads, one per request, when the runtime provides them (Java 21 and later). On older
+ * runtimes they fall back to a bounded pool of platform threads, so thousands of concurrent callers queue up instead
+ * of each getting a thread. Queries never lock: they all read the same immutable snapshot until the file changes.
+ */
+public class TransactionQueryService implements AutoCloseable {
+    // Platform threads per core when virtual threads are unavailable; queries are CPU bound
+    private static final int PLATFORM_THREADS_PER_CORE = 8;
+
+    private final TransactionDataFetcher fetcher;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+
+    public TransactionQueryService(TransactionDataFetcher fetcher) {
+        ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+        this.fetcher = fetcher;
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : newPlatformThreadPool();
+    }
+
+    /**
+     * Creates a service running its requests on the given executor, which is shut down when the service is closed.
+     *
+     * @param fetcher  The fetcher answering the queries.
+     * @param executor The executor running the requests.
+     */
+    public TransactionQueryService(TransactionDataFetcher fetcher, ExecutorService executor) {
+        this.fetcher = fetcher;
+        this.executor = executor;
+        this.virtualThreads = false;
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            // Looked up reflectively so the code still compiles and runs on Java 17
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformThreadPool() {
+        AtomicInteger threads = new AtomicInteger();
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(task, "transaction-query-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * PLATFORM_THREADS_PER_CORE, factory);
+    }
+
+    /**
+     * Runs a query on its own request thread.
+     *
+     * @param query The query to run against the shared fetcher.
+     * @param <T>   The type of the result.
+     * @return A future completed with the result of the query, or exceptionally if it failed.
+     */
+    public <T> CompletableFuture<T> submit(Function<? super TransactionDataFetcher, ? extends T> query) {
+        return CompletableFuture.supplyAsync(() -> query.apply(fetcher), executor);
+    }
+
+    public TransactionDataFetcher getFetcher() {
+        return fetcher;
+    }
+
+    /**
+     * @return The executor running the requests, e.g. to serve HTTP exchanges on the same threads.
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @return True if each request runs on its own virtual thread.
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Stops accepting requests and waits briefly for the running ones to complete.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
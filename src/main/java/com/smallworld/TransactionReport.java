@@ -0,0 +1,139 @@
+package com.smallworld;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Immutable result of a single pass over a set of transactions, holding every metric exposed by
+ * {@link TransactionDataFetcher}. Amount based metrics consider each MTN (Mobile Transaction Number) only once,
+ * using the first row seen for it; issue based metrics consider every row.
+ */
+public final class TransactionReport {
+    private final double totalAmount;
+    private final double maxAmount;
+    private final Map<String, Double> totalAmountsBySender;
+    private final Set<String> clients;
+    private final Set<String> clientsWithOpenIssues;
+    private final Map<String, List<Transaction>> transactionsByBeneficiaryName;
+    private final Set<Integer> unsolvedIssueIds;
+    private final List<String> solvedIssueMessages;
+    private final List<Transaction> topTransactionsByAmount;
+    private final String topSender;
+
+    TransactionReport(
+            double totalAmount,
+            double maxAmount,
+            Map<String, Double> totalAmountsBySender,
+            Set<String> clients,
+            Set<String> clientsWithOpenIssues,
+            Map<String, List<Transaction>> transactionsByBeneficiaryName,
+            Set<Integer> unsolvedIssueIds,
+            List<String> solvedIssueMessages,
+            List<Transaction> topTransactionsByAmount,
+            String topSender
+    ) {
+        this.totalAmount = totalAmount;
+        this.maxAmount = maxAmount;
+        this.totalAmountsBySender = Collections.unmodifiableMap(totalAmountsBySender);
+        this.clients = Collections.unmodifiableSet(clients);
+        this.clientsWithOpenIssues = Collections.unmodifiableSet(clientsWithOpenIssues);
+        this.transactionsByBeneficiaryName = Collections.unmodifiableMap(transactionsByBeneficiaryName);
+        this.unsolvedIssueIds = Collections.unmodifiableSet(unsolvedIssueIds);
+        this.solvedIssueMessages = Collections.unmodifiableList(solvedIssueMessages);
+        this.topTransactionsByAmount = Collections.unmodifiableList(topTransactionsByAmount);
+        this.topSender = topSender;
+    }
+
+    /**
+     * Computes the report for the given transactions in a single pass.
+     *
+     * @param transactions The transactions to aggregate, possibly repeating an MTN once per issue.
+     * @param topLimit     The number of transactions to keep in {@link #getTopTransactionsByAmount()}.
+     * @return The report for the given transactions.
+     */
+    public static TransactionReport of(Iterable<Transaction> transactions, int topLimit) {
+        return of(TransactionColumnStore.of(transactions), topLimit);
+    }
+
+    /**
+     * Computes the report for the rows of the given store in a single pass.
+     *
+     * @param store    The store holding the transactions to aggregate.
+     * @param topLimit The number of transactions to keep in {@link #getTopTransactionsByAmount()}.
+     * @return The report for the given store.
+     */
+    public static TransactionReport of(TransactionColumnStore store, int topLimit) {
+        return TransactionAggregator.aggregate(store, TransactionIndexes.of(store), topLimit);
+    }
+
+    public double getTotalAmount() {
+        return totalAmount;
+    }
+
+    public double getMaxAmount() {
+        return maxAmount;
+    }
+
+    /**
+     * @return The total amount sent by each sender, considering unique MTNs only.
+     */
+    public Map<String, Double> getTotalAmountsBySender() {
+        return totalAmountsBySender;
+    }
+
+    /**
+     * @param senderFullName The full name of the sender.
+     * @return The total amount sent by the sender, or 0.0 if the sender is unknown.
+     */
+    public double getTotalAmountSentBy(String senderFullName) {
+        return totalAmountsBySender.getOrDefault(senderFullName, 0.0);
+    }
+
+    /**
+     * @return The names of all senders and beneficiaries.
+     */
+    public Set<String> getClients() {
+        return clients;
+    }
+
+    /**
+     * @param clientFullName The full name of the client.
+     * @return True if the client is the sender or beneficiary of a transaction with an open issue.
+     */
+    public boolean hasOpenIssues(String clientFullName) {
+        return clientsWithOpenIssues.contains(clientFullName);
+    }
+
+    public Set<String> getClientsWithOpenIssues() {
+        return clientsWithOpenIssues;
+    }
+
+    public Map<String, List<Transaction>> getTransactionsByBeneficiaryName() {
+        return transactionsByBeneficiaryName;
+    }
+
+    public Set<Integer> getUnsolvedIssueIds() {
+        return unsolvedIssueIds;
+    }
+
+    public List<String> getSolvedIssueMessages() {
+        return solvedIssueMessages;
+    }
+
+    /**
+     * @return The transactions with the highest amounts, highest first, considering unique MTNs only.
+     */
+    public List<Transaction> getTopTransactionsByAmount() {
+        return topTransactionsByAmount;
+    }
+
+    /**
+     * @return The sender with the highest total amount sent, if there are any transactions.
+     */
+    public Optional<String> getTopSender() {
+        return Optional.ofNullable(topSender);
+    }
+}
@@ -0,0 +1,114 @@
+package com.smallworld;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable set of rows of a snapshot matching a {@link TransactionFilter}, as returned by
+ * {@link TransactionDataFetcher#select(TransactionFilter)}. Aggregations run over the selected rows only; the full
+ * {@link TransactionReport} of the selection is computed on first use and then reused.
+ */
+public final class TransactionSelection {
+    private static final int TOP_TRANSACTIONS_LIMIT = 3;
+
+    private final TransactionColumnStore store;
+    // Selected rows, in increasing row order
+    private final int[] rows;
+    private final Lazy<TransactionReport> report;
+
+    TransactionSelection(TransactionColumnStore store, TransactionIndexes indexes, int[] rows) {
+        this.store = store;
+        this.rows = rows;
+        this.report = new Lazy<>(() -> {
+            TransactionAggregator aggregator = new TransactionAggregator(store, TOP_TRANSACTIONS_LIMIT);
+            for (int row : rows) {
+                aggregator.accept(row);
+            }
+            return aggregator.toReport(indexes);
+        });
+    }
+
+    /**
+     * @return The number of selected transactions, counting each MTN once.
+     */
+    public int size() {
+        return rows.length;
+    }
+
+    /**
+     * @return The selected rows of the snapshot's column store, in row order.
+     */
+    public int[] getRows() {
+        return Arrays.copyOf(rows, rows.length);
+    }
+
+    /**
+     * @return The selected transactions, one per MTN, in file order.
+     */
+    public List<Transaction> getTransactions() {
+        List<Transaction> transactions = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            transactions.add(store.toTransaction(row));
+        }
+        return transactions;
+    }
+
+    /**
+     * @return The sum of the amounts of the selected transactions, rounded once like the unfiltered total.
+     */
+    public double getTotalAmount() {
+        ExactSum total = new ExactSum();
+        for (int row : rows) {
+            total.add(store.getAmount(row));
+        }
+        return total.value();
+    }
+
+    /**
+     * @return The highest amount of the selected transactions, or 0.0 if none was selected.
+     */
+    public double getMaxAmount() {
+        if (rows.length == 0) {
+            return 0.0;
+        }
+        double max = store.getAmount(rows[0]);
+        for (int row : rows) {
+            max = Math.max(max, store.getAmount(row));
+        }
+        return max;
+    }
+
+    /**
+     * Retrieves the K selected transactions with the highest amounts. Ties on amount keep the transactions in file order.
+     *
+     * @param k The number of transactions to retrieve.
+     * @return A list containing at most k transactions, highest amount first.
+     * @throws IllegalArgumentException If k is negative.
+     */
+    public List<Transaction> getTopTransactionsByAmount(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        // Ranks positions in the rows array, whose order matches row order
+        TopK top = TopK.select(Math.min(k, rows.length), (left, right) -> {
+            int order = Double.compare(store.getAmount(rows[right]), store.getAmount(rows[left]));
+            return order != 0 ? order : Integer.compare(left, right);
+        }, 0, rows.length, null);
+        List<Transaction> transactions = new ArrayList<>(top.size());
+        for (int position : top.toSortedArray()) {
+            transactions.add(store.toTransaction(rows[position]));
+        }
+        return transactions;
+    }
+
+    /**
+     * Retrieves every metric of the selection, e.g. the amounts per sender or the unsolved issue ids of the selected
+     * transactions.
+     *
+     * @return The report for the selected transactions.
+     */
+    public TransactionReport getReport() {
+        return report.get();
+    }
+}
@@ -0,0 +1,88 @@
+package com.smallworld;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable, point-in-time view of the transactions loaded from a single file, or merged from the snapshots of the
+ * shards of a sharded source.
+ * A snapshot is never modified after construction, so it can be shared freely between threads;
+ * a reload produces a new snapshot with a higher version instead of mutating this one.
+ */
+public final class TransactionSnapshot {
+    private final Path path;
+    private final long version;
+    private final FileTime lastModifiedTime;
+    private final long size;
+    private final TransactionColumnStore store;
+    private final List<TransactionSnapshot> shards;
+
+    TransactionSnapshot(Path path, long version, FileTime lastModifiedTime, long size, TransactionColumnStore store) {
+        this(path, version, lastModifiedTime, size, store, List.of());
+    }
+
+    TransactionSnapshot(Path path, long version, FileTime lastModifiedTime, long size, TransactionColumnStore store,
+                        List<TransactionSnapshot> shards) {
+        this.path = path;
+        this.version = version;
+        this.lastModifiedTime = lastModifiedTime;
+        this.size = size;
+        this.store = store;
+        this.shards = List.copyOf(shards);
+    }
+
+    /**
+     * Checks whether this snapshot still reflects the file described by the given attributes.
+     *
+     * @param attributes The current attributes of the source file.
+     * @return True if neither the modification time nor the size of the file have changed since it was loaded.
+     */
+    public boolean isCurrent(BasicFileAttributes attributes) {
+        return size == attributes.size() && lastModifiedTime.equals(attributes.lastModifiedTime());
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public FileTime getLastModifiedTime() {
+        return lastModifiedTime;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return The snapshots this one was merged from, in merge order, or an empty list for a single file.
+     */
+    public List<TransactionSnapshot> getShards() {
+        return shards;
+    }
+
+    List<Path> getShardPaths() {
+        return shards.stream().map(TransactionSnapshot::getPath).collect(Collectors.toList());
+    }
+
+    /**
+     * @return The columnar store holding the transactions of this snapshot.
+     */
+    public TransactionColumnStore getStore() {
+        return store;
+    }
+
+    /**
+     * @return A read-only view of the transactions of this snapshot, one per issue row, grouped by MTN as described
+     * in {@link TransactionColumnStore#asList()}.
+     */
+    public List<Transaction> getTransactions() {
+        return store.asList();
+    }
+}
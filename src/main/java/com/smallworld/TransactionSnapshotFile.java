@@ -0,0 +1,268 @@
+package com.smallworld;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Compact binary snapshot of a {@link TransactionColumnStore}, opened with {@link FileChannel#map} so queries read the
+ * columns straight from the OS page cache instead of parsing JSON into transactions. Several JVMs opening the same
+ * snapshot share its pages.
+ * <p>
+ * All values are little-endian. The file starts with a fixed {@value #HEADER_SIZE} byte header:
+ * <pre>
+ *   0  int   magic, {@value #MAGIC}
+ *   4  int   format version, {@value #FORMAT_VERSION}
+ *   8  int   row count
+ *  12  int   issue count
+ *  16  int   name count
+ *  20  int   message count
+ *  24  long  offset of the first column
+ *  32        reserved, zero
+ * </pre>
+ * It is followed by the name and then the issue message dictionaries, each entry being an int byte length and the
+ * UTF-8 bytes of the string. The fixed-width columns follow, each starting on an 8 byte boundary: amounts (double),
+ * MTNs, sender ids, sender ages, beneficiary ids, beneficiary ages (int per row), issue offsets (int per row plus one),
+ * issue ids, issue message ids (int per issue), issue solved flags (byte per issue) and row flags (byte per row).
+ * <p>
+ * Only the two dictionaries are decoded when a snapshot is opened, the row view of {@link TransactionColumnStore#asList()}
+ * being indexed on its first use. Each column is mapped on its own, so the 2 GiB limit of a mapping applies per
+ * column rather than to the file: about 268 million rows, bound by the amounts.
+ */
+public final class TransactionSnapshotFile {
+    static final int MAGIC = 0x53575453;
+    static final int FORMAT_VERSION = 2;
+    static final int HEADER_SIZE = 64;
+    private static final int ALIGNMENT = 8;
+    // Indexes of the columns in file order
+    private static final int AMOUNTS = 0;
+    private static final int MTNS = 1;
+    private static final int ISSUE_OFFSETS = 6;
+    private static final int ISSUE_IDS = 7;
+    private static final int ISSUE_MESSAGE_IDS = 8;
+    private static final int ISSUE_SOLVED = 9;
+    private static final int ROW_FLAGS = 10;
+
+    private TransactionSnapshotFile() {
+    }
+
+    /**
+     * Writes a store as a binary snapshot. The snapshot is written next to the target and then moved in place, so
+     * readers mapping the previous version of the file never see a partially written one.
+     *
+     * @param store The store to write.
+     * @param file  The snapshot file to create or replace.
+     * @throws IOException If the file cannot be written, or a column or the dictionaries would exceed 2 GiB.
+     */
+    public static void write(TransactionColumnStore store, Path file) throws IOException {
+        byte[][] names = new byte[store.getNameCount()][];
+        byte[][] messages = new byte[store.getMessageCount()][];
+        long stringsSize = 0;
+        for (int id = 0; id < names.length; id++) {
+            names[id] = store.getName(id).getBytes(StandardCharsets.UTF_8);
+            stringsSize += Integer.BYTES + names[id].length;
+        }
+        for (int id = 0; id < messages.length; id++) {
+            messages[id] = store.getMessage(id).getBytes(StandardCharsets.UTF_8);
+            stringsSize += Integer.BYTES + messages[id].length;
+        }
+        int rows = store.size();
+        int issues = store.getIssueCount();
+        long columnsOffset = align(HEADER_SIZE + stringsSize);
+        long[] columns = columnOffsets(columnsOffset, rows, issues);
+
+        Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer header = map(channel, FileChannel.MapMode.READ_WRITE, 0, columnsOffset, file);
+                header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(rows).putInt(issues)
+                        .putInt(names.length).putInt(messages.length).putLong(columnsOffset);
+                header.position(HEADER_SIZE);
+                for (byte[] name : names) {
+                    header.putInt(name.length).put(name);
+                }
+                for (byte[] message : messages) {
+                    header.putInt(message.length).put(message);
+                }
+                header.force();
+
+                MappedByteBuffer amounts = mapColumn(channel, FileChannel.MapMode.READ_WRITE, columns, AMOUNTS, file);
+                for (int row = 0; row < rows; row++) {
+                    amounts.putDouble(store.getAmount(row));
+                }
+                amounts.force();
+                putColumn(mapColumn(channel, FileChannel.MapMode.READ_WRITE, columns, MTNS, file), rows, store::getMtn);
+                putColumn(mapColumn(channel, FileChannel.MapMode.READ_WRITE, columns, MTNS + 1, file), rows, store::getSenderId);
+                putColumn(mapColumn(channel, FileChannel.MapMode.READ_WRITE, columns, MTNS + 2, file), rows, store::getSenderAge);
+                putColumn(mapColumn(channel, FileChannel.MapMode.READ_WRITE, columns, MTNS + 3, file), rows, store::getBeneficiaryId);
+                putColumn(mapColumn(channel, FileChannel.MapMode.READ_WRITE, columns, MTNS + 4, file), rows, store::getBeneficiaryAge);
+                // One offset per row plus the end of the last row
+                putColumn(mapColumn(channel, FileChannel.MapMode.READ_WRITE, columns, ISSUE_OFFSETS, file), rows + 1,
+                        row -> row < rows ? store.getIssueStart(row) : issues);
+                putColumn(mapColumn(channel, FileChannel.MapMode.READ_WRITE, columns, ISSUE_IDS, file), issues, store::getIssueId);
+                putColumn(mapColumn(channel, FileChannel.MapMode.READ_WRITE, columns, ISSUE_MESSAGE_IDS, file), issues, store::getIssueMessageId);
+                MappedByteBuffer solved = mapColumn(channel, FileChannel.MapMode.READ_WRITE, columns, ISSUE_SOLVED, file);
+                for (int issue = 0; issue < issues; issue++) {
+                    solved.put((byte) (store.isIssueSolved(issue) ? 1 : 0));
+                }
+                solved.force();
+                MappedByteBuffer flags = mapColumn(channel, FileChannel.MapMode.READ_WRITE, columns, ROW_FLAGS, file);
+                for (int row = 0; row < rows; row++) {
+                    flags.put(store.getRowFlags(row));
+                }
+                flags.force();
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Maps a binary snapshot into a store. The mapping stays valid after the file is replaced, but the file must not
+     * be truncated or rewritten in place while the store is in use.
+     *
+     * @param file The snapshot file.
+     * @return A store reading its columns from the mapped file.
+     * @throws IOException If the file cannot be read or is not a valid snapshot.
+     */
+    public static TransactionColumnStore open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            ByteBuffer header = map(channel, FileChannel.MapMode.READ_ONLY, 0, Math.min(fileSize, HEADER_SIZE), file);
+            if (header.limit() < HEADER_SIZE || header.getInt(0) != MAGIC) {
+                throw new IOException("Not a transaction snapshot: " + file);
+            }
+            if (header.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot format version " + header.getInt(4) + ": " + file);
+            }
+            int rows = header.getInt(8);
+            int issues = header.getInt(12);
+            long columnsOffset = header.getLong(24);
+            if (rows < 0 || issues < 0 || columnsOffset < HEADER_SIZE || columnsOffset + columnsSize(rows, issues) > fileSize) {
+                throw new IOException("Truncated or corrupt transaction snapshot: " + file);
+            }
+
+            String[] names;
+            String[] messages;
+            try {
+                ByteBuffer strings = map(channel, FileChannel.MapMode.READ_ONLY, 0, columnsOffset, file);
+                strings.position(HEADER_SIZE);
+                names = readStrings(strings, header.getInt(16));
+                messages = readStrings(strings, header.getInt(20));
+            } catch (BufferUnderflowException | NegativeArraySizeException e) {
+                throw new IOException("Corrupt string dictionary in transaction snapshot: " + file, e);
+            }
+
+            long[] columns = columnOffsets(columnsOffset, rows, issues);
+            DoubleBuffer amounts = mapColumn(channel, FileChannel.MapMode.READ_ONLY, columns, AMOUNTS, file).asDoubleBuffer();
+            IntBuffer[] rowColumns = new IntBuffer[5];
+            for (int column = 0; column < rowColumns.length; column++) {
+                rowColumns[column] = mapColumn(channel, FileChannel.MapMode.READ_ONLY, columns, MTNS + column, file).asIntBuffer();
+            }
+            IntBuffer issueOffsets = mapColumn(channel, FileChannel.MapMode.READ_ONLY, columns, ISSUE_OFFSETS, file).asIntBuffer();
+            IntBuffer issueIds = mapColumn(channel, FileChannel.MapMode.READ_ONLY, columns, ISSUE_IDS, file).asIntBuffer();
+            IntBuffer issueMessageIds = mapColumn(channel, FileChannel.MapMode.READ_ONLY, columns, ISSUE_MESSAGE_IDS, file).asIntBuffer();
+            ByteBuffer issueSolved = mapColumn(channel, FileChannel.MapMode.READ_ONLY, columns, ISSUE_SOLVED, file);
+            ByteBuffer rowFlags = mapColumn(channel, FileChannel.MapMode.READ_ONLY, columns, ROW_FLAGS, file);
+
+            return new TransactionColumnStore(rows, rowColumns[0], amounts, rowColumns[1], rowColumns[2], rowColumns[3],
+                    rowColumns[4], rowFlags, names, issueOffsets, issueIds, issueSolved, issueMessageIds, messages);
+        }
+    }
+
+    /**
+     * Checks whether a file starts like a binary snapshot, without mapping it.
+     *
+     * @param file The file to check.
+     * @return True if the file starts with the snapshot magic number.
+     * @throws IOException If the file cannot be read.
+     */
+    public static boolean isSnapshot(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // Keep reading until the magic number is complete or the file ends
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    private static long columnsSize(long rows, long issues) {
+        long[] columns = columnOffsets(0, rows, issues);
+        return columns[columns.length - 1];
+    }
+
+    /**
+     * @return The start of each column in file order, followed by the end of the last one.
+     */
+    private static long[] columnOffsets(long columnsOffset, long rows, long issues) {
+        long[] lengths = {rows * Double.BYTES, rows * Integer.BYTES, rows * Integer.BYTES, rows * Integer.BYTES,
+                rows * Integer.BYTES, rows * Integer.BYTES, (rows + 1) * Integer.BYTES, issues * Integer.BYTES,
+                issues * Integer.BYTES, issues, rows};
+        long[] offsets = new long[lengths.length + 1];
+        offsets[0] = columnsOffset;
+        for (int column = 0; column < lengths.length; column++) {
+            // Columns start on an aligned boundary; the last one is not padded
+            long end = offsets[column] + lengths[column];
+            offsets[column + 1] = column + 1 < lengths.length ? align(end) : end;
+        }
+        return offsets;
+    }
+
+    /**
+     * Maps one column on its own, so only a single column, not the whole file, is bound by the 2 GiB limit of a
+     * mapping: about 268 million rows for the amounts.
+     */
+    private static MappedByteBuffer mapColumn(FileChannel channel, FileChannel.MapMode mode, long[] columns, int column,
+                                              Path file) throws IOException {
+        return map(channel, mode, columns[column], columns[column + 1] - columns[column], file);
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long position, long length,
+                                        Path file) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot segment of " + length + " bytes exceeds the 2 GiB limit of a mapping: " + file);
+        }
+        MappedByteBuffer buffer = channel.map(mode, position, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private static long align(long offset) {
+        return (offset + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    private static void putColumn(MappedByteBuffer buffer, int count, IntUnaryOperator column) {
+        for (int index = 0; index < count; index++) {
+            buffer.putInt(column.applyAsInt(index));
+        }
+        buffer.force();
+    }
+
+    private static String[] readStrings(ByteBuffer buffer, int count) {
+        String[] strings = new String[count];
+        for (int id = 0; id < count; id++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            strings[id] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+}
@@ -0,0 +1,140 @@
+package com.smallworld;
+
+/**
+ * Min/max summaries (zone maps) of fixed-size blocks of rows of a {@link TransactionColumnStore}, built in one pass
+ * per snapshot. A filtered scan checks each block summary first: blocks that cannot hold a matching row are skipped
+ * without reading their rows, and blocks whose every row is known to match are taken without evaluating them.
+ */
+public final class TransactionZoneMaps {
+    static final int BLOCK_SIZE = 1024;
+
+    /**
+     * Outcome of checking a filter against the summary of a block.
+     */
+    enum Coverage {
+        // No row of the block can match
+        NONE,
+        // Some rows may match and must be evaluated one by one
+        SOME,
+        // Every row of the block matches
+        ALL
+    }
+
+    private final int rowCount;
+    private final double[] minAmounts;
+    private final double[] maxAmounts;
+    private final int[] minSenderAges;
+    private final int[] maxSenderAges;
+    private final int[] minBeneficiaryAges;
+    private final int[] maxBeneficiaryAges;
+    private final int[] minMtns;
+    private final int[] maxMtns;
+    // Rows of each block per issue state; the remaining rows have no issue
+    private final int[] openIssueRows;
+    private final int[] solvedIssueRows;
+
+    private TransactionZoneMaps(TransactionColumnStore store) {
+        this.rowCount = store.size();
+        int blocks = (rowCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        this.minAmounts = new double[blocks];
+        this.maxAmounts = new double[blocks];
+        this.minSenderAges = new int[blocks];
+        this.maxSenderAges = new int[blocks];
+        this.minBeneficiaryAges = new int[blocks];
+        this.maxBeneficiaryAges = new int[blocks];
+        this.minMtns = new int[blocks];
+        this.maxMtns = new int[blocks];
+        this.openIssueRows = new int[blocks];
+        this.solvedIssueRows = new int[blocks];
+
+        for (int block = 0; block < blocks; block++) {
+            int start = getBlockStart(block);
+            minAmounts[block] = maxAmounts[block] = store.getAmount(start);
+            minSenderAges[block] = maxSenderAges[block] = store.getSenderAge(start);
+            minBeneficiaryAges[block] = maxBeneficiaryAges[block] = store.getBeneficiaryAge(start);
+            minMtns[block] = maxMtns[block] = store.getMtn(start);
+            for (int row = start; row < getBlockEnd(block); row++) {
+                minAmounts[block] = Math.min(minAmounts[block], store.getAmount(row));
+                maxAmounts[block] = Math.max(maxAmounts[block], store.getAmount(row));
+                minSenderAges[block] = Math.min(minSenderAges[block], store.getSenderAge(row));
+                maxSenderAges[block] = Math.max(maxSenderAges[block], store.getSenderAge(row));
+                minBeneficiaryAges[block] = Math.min(minBeneficiaryAges[block], store.getBeneficiaryAge(row));
+                maxBeneficiaryAges[block] = Math.max(maxBeneficiaryAges[block], store.getBeneficiaryAge(row));
+                minMtns[block] = Math.min(minMtns[block], store.getMtn(row));
+                maxMtns[block] = Math.max(maxMtns[block], store.getMtn(row));
+                if (store.getIssueStart(row) < store.getIssueEnd(row)) {
+                    boolean open = false;
+                    for (int issue = store.getIssueStart(row); issue < store.getIssueEnd(row) && !open; issue++) {
+                        open = !store.isIssueSolved(issue);
+                    }
+                    if (open) {
+                        openIssueRows[block]++;
+                    } else {
+                        solvedIssueRows[block]++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Summarizes the given store in a single pass over its rows.
+     *
+     * @param store The store to summarize.
+     * @return The zone maps of the store.
+     */
+    public static TransactionZoneMaps of(TransactionColumnStore store) {
+        return new TransactionZoneMaps(store);
+    }
+
+    public int getBlockCount() {
+        return minAmounts.length;
+    }
+
+    int getBlockStart(int block) {
+        return block * BLOCK_SIZE;
+    }
+
+    int getBlockEnd(int block) {
+        return Math.min(rowCount, (block + 1) * BLOCK_SIZE);
+    }
+
+    /**
+     * Checks a filter against the summary of a block. Names are not considered.
+     *
+     * @param filter The filter to check.
+     * @param block  The block to check.
+     * @return Whether none, some or all of the rows of the block satisfy the ranges and issue state of the filter.
+     */
+    Coverage getCoverage(TransactionFilter filter, int block) {
+        if (maxAmounts[block] < filter.getMinAmount() || minAmounts[block] > filter.getMaxAmount()
+                || maxSenderAges[block] < filter.getMinSenderAge() || minSenderAges[block] > filter.getMaxSenderAge()
+                || maxBeneficiaryAges[block] < filter.getMinBeneficiaryAge() || minBeneficiaryAges[block] > filter.getMaxBeneficiaryAge()
+                || maxMtns[block] < filter.getMinMtn() || minMtns[block] > filter.getMaxMtn()) {
+            return Coverage.NONE;
+        }
+        int rows = getBlockEnd(block) - getBlockStart(block);
+        int matchingIssueRows;
+        switch (filter.getIssueState()) {
+            case OPEN:
+                matchingIssueRows = openIssueRows[block];
+                break;
+            case SOLVED:
+                matchingIssueRows = solvedIssueRows[block];
+                break;
+            case NONE:
+                matchingIssueRows = rows - openIssueRows[block] - solvedIssueRows[block];
+                break;
+            default:
+                matchingIssueRows = rows;
+        }
+        if (matchingIssueRows == 0) {
+            return Coverage.NONE;
+        }
+        boolean rangesContainBlock = minAmounts[block] >= filter.getMinAmount() && maxAmounts[block] <= filter.getMaxAmount()
+                && minSenderAges[block] >= filter.getMinSenderAge() && maxSenderAges[block] <= filter.getMaxSenderAge()
+                && minBeneficiaryAges[block] >= filter.getMinBeneficiaryAge() && maxBeneficiaryAges[block] <= filter.getMaxBeneficiaryAge()
+                && minMtns[block] >= filter.getMinMtn() && maxMtns[block] <= filter.getMaxMtn();
+        return rangesContainBlock && matchingIssueRows == rows ? Coverage.ALL : Coverage.SOME;
+    }
+}
@@ -0,0 +1,90 @@
+package com.smallworld;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+class ApproximateAggregatesTest {
+
+    @Test
+    void testSketchesStayWithinTheirBoundsAndMergeAcrossPartitions() {
+        HyperLogLog clients = HyperLogLog.withRelativeError(0.01);
+        HyperLogLog left = HyperLogLog.withRelativeError(0.01);
+        HyperLogLog right = HyperLogLog.withRelativeError(0.01);
+        QuantileSketch amounts = new QuantileSketch(0.01);
+        QuantileSketch leftAmounts = new QuantileSketch(0.01);
+        QuantileSketch rightAmounts = new QuantileSketch(0.01);
+        SpaceSaving senders = new SpaceSaving(50);
+        SpaceSaving leftSenders = new SpaceSaving(50);
+        SpaceSaving rightSenders = new SpaceSaving(50);
+        Random random = new Random(7);
+        double[] values = new double[200_000];
+        for (int i = 0; i < values.length; i++) {
+            String client = "Client " + i;
+            values[i] = Math.exp(random.nextGaussian() * 2 + 5);
+            // Sender 0 sends a fifth of the transactions, the others are spread over 10,000 senders
+            String sender = i % 5 == 0 ? "Sender 0" : "Sender " + (1 + random.nextInt(10_000));
+            clients.add(client);
+            amounts.add(values[i]);
+            senders.add(sender, 1);
+            (i % 2 == 0 ? left : right).add(client);
+            (i % 2 == 0 ? leftAmounts : rightAmounts).add(values[i]);
+            (i % 2 == 0 ? leftSenders : rightSenders).add(sender, 1);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, clients.estimate(), values.length * 3 * clients.getRelativeError());
+        assertEquals(clients.estimate(), left.merge(right).estimate());
+        for (double quantile : new double[]{0.5, 0.95, 0.99}) {
+            double exact = values[(int) (quantile * (values.length - 1))];
+            assertEquals(exact, amounts.getQuantile(quantile), exact * 0.01);
+            assertEquals(amounts.getQuantile(quantile), leftAmounts.merge(rightAmounts).getQuantile(quantile));
+        }
+        assertEquals("Sender 0", senders.getTop(1).get(0));
+        assertEquals(values.length / 5, senders.getCount("Sender 0") - senders.getError("Sender 0"), values.length / 50.0);
+        assertEquals("Sender 0", leftSenders.merge(rightSenders).getTop(1).get(0));
+        assertEquals(values.length, leftSenders.getTotal());
+    }
+
+    @Test
+    void testQuantileSketchMemoryIsBounded() {
+        QuantileSketch amounts = new QuantileSketch(0.01, 1024);
+        for (int exponent = -300; exponent <= 300; exponent++) {
+            amounts.add(Math.pow(10, exponent));
+        }
+
+        // Collapsing only affects the lowest quantiles, and the extremes are exact
+        assertEquals(1e300, amounts.getQuantile(1.0));
+        assertEquals(1e294, amounts.getQuantile(0.99), 1e294 * 0.01);
+        assertEquals(601, amounts.getCount());
+    }
+
+    @Test
+    void testUnreachableClientErrorIsRejected() {
+        assertEquals(HyperLogLog.MAX_PRECISION, HyperLogLog.withRelativeError(0.0021).getPrecision());
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.withRelativeError(0.001));
+        assertThrows(IllegalArgumentException.class, () -> new ApproximationSettings(0.001, 0.01, 0.01));
+    }
+
+    @Test
+    void testFetcherAnswersApproximateQueriesOnlyWhenEnabled() throws IOException {
+        TransactionDataFetcher exact = new TransactionDataFetcher(new TransactionDataReader());
+        TransactionDataFetcher approximate = new TransactionDataFetcher(new TransactionDataReader(),
+                TransactionDataFetcher.DEFAULT_FILE_PATH, null, MetricsRegistry.NOOP, ApproximationSettings.DEFAULT);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        TransactionDataFetcher parallel = new TransactionDataFetcher(new TransactionDataReader(),
+                TransactionDataFetcher.DEFAULT_FILE_PATH, pool, MetricsRegistry.NOOP, ApproximationSettings.DEFAULT);
+
+        assertThrows(IllegalStateException.class, exact::estimateUniqueClients);
+        assertEquals(exact.countUniqueClients(), approximate.estimateUniqueClients());
+        assertEquals(exact.getMaxTransactionAmount(), approximate.estimateAmountQuantile(1.0));
+        assertEquals(exact.getTopSenders(1), approximate.estimateTopSenders(1));
+        assertEquals(approximate.estimateAmountQuantile(0.5), parallel.estimateAmountQuantile(0.5));
+        assertEquals(approximate.estimateUniqueClients(), parallel.estimateUniqueClients());
+        pool.shutdown();
+    }
+}
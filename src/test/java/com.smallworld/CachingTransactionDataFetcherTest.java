@@ -0,0 +1,98 @@
+package com.smallworld;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+class CachingTransactionDataFetcherTest {
+
+    @Test
+    void testRepeatedQueriesHitTheCacheUntilTheSnapshotChanges() throws IOException {
+        TransactionDataReader mockReader = mock(TransactionDataReader.class);
+        CachingTransactionDataFetcher fetcher = new CachingTransactionDataFetcher(mockReader, "transactions.json", 10);
+        when(mockReader.readTransactionsFromFile("transactions.json")).thenReturn(Arrays.asList(
+                new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, 1, false, "Issue1"),
+                new Transaction(2, 150.0, "Sender2", 28, "Beneficiary2", 35, null, false, null)
+        ));
+
+        List<Transaction> first = fetcher.getTransactionsSentBy("Sender1");
+        List<Transaction> second = fetcher.getTransactionsSentBy("Sender1");
+        fetcher.getTransactionsSentBy("Sender2");
+
+        assertSame(first, second);
+        assertEquals(1, fetcher.getHitCount());
+        assertEquals(2, fetcher.getMissCount());
+        assertEquals(Set.of(1), fetcher.getUnsolvedIssueIds());
+        // Answered from the report, so not cached
+        assertEquals(2, fetcher.size());
+
+        when(mockReader.readTransactionsFromFile("transactions.json")).thenReturn(Arrays.asList(
+                new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, 1, true, "Issue1")
+        ));
+
+        assertTrue(fetcher.getUnsolvedIssueIds().isEmpty());
+        assertNotSame(first, fetcher.getTransactionsSentBy("Sender1"));
+        assertEquals(1, fetcher.size());
+    }
+
+    @Test
+    void testLeastRecentlyUsedResultIsEvicted() throws IOException {
+        TransactionDataReader mockReader = mock(TransactionDataReader.class);
+        CachingTransactionDataFetcher fetcher = new CachingTransactionDataFetcher(mockReader, "transactions.json", 4);
+        when(mockReader.readTransactionsFromFile("transactions.json")).thenReturn(Arrays.asList(
+                new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, null, false, null),
+                new Transaction(2, 150.0, "Sender2", 28, "Beneficiary2", 35, null, false, null)
+        ));
+
+        // Each result weighs one plus its transactions: 2, 2, then 1 for the unknown sender
+        fetcher.getTransactionsSentBy("Sender1");
+        fetcher.getTransactionsSentBy("Sender2");
+        fetcher.getTransactionsSentBy("Sender1");
+        fetcher.getTransactionsSentBy("Sender3");
+        fetcher.getTransactionsSentBy("Sender1");
+
+        assertEquals(2, fetcher.size());
+        assertEquals(3, fetcher.getWeight());
+        assertEquals(1, fetcher.getEvictionCount());
+        assertEquals(2, fetcher.getHitCount());
+    }
+
+    @Test
+    void testCachedQueryReadsTheSnapshotOnce() throws IOException {
+        TransactionDataReader mockReader = mock(TransactionDataReader.class);
+        CachingTransactionDataFetcher fetcher = new CachingTransactionDataFetcher(mockReader, "transactions.json", 10);
+        when(mockReader.readTransactionsFromFile("transactions.json")).thenReturn(Arrays.asList(
+                new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, null, false, null)
+        ));
+
+        fetcher.getTransactionsSentBy("Sender1");
+        fetcher.getTopSenders(1);
+
+        verify(mockReader, times(2)).readTransactionsFromFile("transactions.json");
+    }
+
+    @Test
+    void testResultsHeavierThanTheBoundAreNotCached() throws IOException {
+        TransactionDataReader mockReader = mock(TransactionDataReader.class);
+        CachingTransactionDataFetcher fetcher = new CachingTransactionDataFetcher(mockReader, "transactions.json", 2);
+        when(mockReader.readTransactionsFromFile("transactions.json")).thenReturn(Arrays.asList(
+                new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, null, false, null),
+                new Transaction(2, 150.0, "Sender1", 28, "Beneficiary2", 35, null, false, null)
+        ));
+
+        assertEquals(2, fetcher.getTransactionsSentBy("Sender1").size());
+        fetcher.getTransactionsSentBy("Sender1");
+
+        assertEquals(0, fetcher.size());
+        assertEquals(0, fetcher.getHitCount());
+        assertEquals(0, fetcher.getEvictionCount());
+    }
+}
@@ -0,0 +1,64 @@
+package com.smallworld;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import javax.management.JMException;
+import javax.management.openmbean.TabularData;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+class InMemoryMetricsRegistryTest {
+
+    @Test
+    void testLatencyPercentilesAreWithinBucketPrecision() {
+        InMemoryMetricsRegistry metrics = new InMemoryMetricsRegistry();
+        for (long nanos = 1; nanos <= 1_000; nanos++) {
+            metrics.recordLatency("query", nanos * 1_000);
+        }
+
+        LatencySnapshot latency = metrics.snapshot().getLatency("query");
+
+        assertEquals(1_000, latency.getCount());
+        assertEquals(1_000_000, latency.getMaxNanos());
+        assertEquals(500_000, latency.getP50Nanos(), 500_000 * 0.125);
+        assertEquals(990_000, latency.getP99Nanos(), 990_000 * 0.125);
+        assertTrue(latency.getP99Nanos() <= latency.getMaxNanos());
+    }
+
+    @Test
+    void testReaderAndFetcherRecordLoadsAndQueries() throws IOException {
+        InMemoryMetricsRegistry metrics = new InMemoryMetricsRegistry();
+        TransactionDataFetcher fetcher = new TransactionDataFetcher(new TransactionDataReader(metrics),
+                TransactionDataFetcher.DEFAULT_FILE_PATH, null, metrics);
+
+        fetcher.getTotalTransactionAmount();
+        fetcher.getTotalTransactionAmount();
+        fetcher.getTotalTransactionAmountStreaming();
+        new TransactionDataReader(metrics).readTransactionsFromFile("missing.json");
+        MetricsSnapshot snapshot = metrics.snapshot();
+
+        assertEquals(2, snapshot.getLatency("fetcher.getTotalTransactionAmount").getCount());
+        assertEquals(1, snapshot.getLatency("fetcher.report.build").getCount());
+        assertEquals(1, snapshot.getLatency("reader.load").getCount());
+        assertEquals(1, snapshot.getCounter("reader.loadFailures"));
+        assertTrue(snapshot.getCounter("reader.bytes") > 0);
+        assertTrue(snapshot.getRatePerSecond("reader.records", "reader.load") > 0);
+        assertEquals(snapshot.getCounter("reader.records"), snapshot.getCounter("fetcher.getTotalTransactionAmountStreaming.rowsScanned"));
+        assertEquals(fetcher.getColumnStore().size(), snapshot.getCounter("fetcher.report.rowsScanned"));
+    }
+
+    @Test
+    void testJmxRegistryIsPublished() throws JMException {
+        try (JmxMetricsRegistry metrics = JmxMetricsRegistry.register("com.smallworld:type=TransactionMetrics,name=test")) {
+            metrics.increment("reader.records", 3);
+            metrics.recordLatency("reader.load", 1_000);
+
+            TabularData counters = (TabularData) ManagementFactory.getPlatformMBeanServer().getAttribute(metrics.getObjectName(), "Counters");
+            TabularData latencies = (TabularData) ManagementFactory.getPlatformMBeanServer().getAttribute(metrics.getObjectName(), "Latencies");
+
+            assertEquals(3L, counters.get(new Object[]{"reader.records"}).get("value"));
+            assertEquals(1, latencies.size());
+        }
+    }
+}
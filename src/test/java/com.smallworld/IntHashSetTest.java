@@ -0,0 +1,82 @@
+package com.smallworld;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+class IntHashSetTest {
+
+    @Test
+    void testMatchesHashSetUnderRandomAddsAndRemoves() {
+        IntHashSet set = new IntHashSet();
+        Set<Integer> expected = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // A narrow key range, including 0 and negatives, forces collisions, growth and removals of present keys
+            int key = random.nextInt(20_000) - 1_000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), set.remove(key));
+            } else {
+                assertEquals(expected.add(key), set.add(key));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        assertEquals(expected, set.toSet());
+        for (int key = -1_000; key < 19_000; key++) {
+            assertEquals(expected.contains(key), set.contains(key));
+        }
+    }
+
+    @Test
+    void testDeduplicationDoesNotAllocatePerRow() {
+        int rows = 1_000_000;
+        IntHashSet uniqueMtns = new IntHashSet(rows);
+        deduplicate(uniqueMtns, rows);
+        uniqueMtns.clear();
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        int unique = deduplicate(uniqueMtns, rows);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertEquals(rows / 2, unique);
+        // Boxing would cost at least 16 bytes per row; a presized set allocates nothing at all
+        assertTrue(allocated < rows / 100, "Allocated " + allocated + " bytes for " + rows + " rows");
+    }
+
+    @Test
+    void testTablesGrowPastTwoToTheTwentyFourKeys() {
+        // Growing to 2^26 slots used to overflow the load check and double the table on every later add
+        int keys = (1 << 24) + 16;
+        IntHashSet set = new IntHashSet();
+        for (int key = 1; key <= keys; key++) {
+            set.add(key);
+        }
+        assertEquals(keys, set.size());
+        assertTrue(set.contains(keys));
+        set = null;
+
+        IntIntHashMap map = new IntIntHashMap(16);
+        for (int key = 1; key <= keys; key++) {
+            map.put(key, -key);
+        }
+        assertEquals(keys, map.size());
+        assertEquals(-keys, map.get(keys, 0));
+    }
+
+    private static int deduplicate(IntHashSet uniqueMtns, int rows) {
+        int unique = 0;
+        for (int row = 0; row < rows; row++) {
+            // Every MTN appears twice, like a transaction with two issues
+            if (uniqueMtns.add(row / 2)) {
+                unique++;
+            }
+        }
+        return unique;
+    }
+}
@@ -0,0 +1,87 @@
+package com.smallworld;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+class LiveTransactionAggregatesTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testAppendDeduplicatesAmountsByMtn() {
+        LiveTransactionAggregates aggregates = new LiveTransactionAggregates();
+
+        aggregates.append(new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, 1, false, "Issue1"));
+        aggregates.append(new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, 2, false, "Issue2"));
+        aggregates.append(new Transaction(2, 150.0, "Sender1", 25, "Beneficiary2", 35, null, false, null));
+
+        assertEquals(250.0, aggregates.getTotalTransactionAmount());
+        assertEquals(250.0, aggregates.getTotalTransactionAmountSentBy("Sender1"));
+        assertEquals(150.0, aggregates.getMaxTransactionAmount());
+        assertEquals(3, aggregates.countUniqueClients());
+        assertEquals(2, aggregates.getTransactionCount());
+        assertEquals(2, aggregates.countOpenComplianceIssues("Sender1"));
+    }
+
+    @Test
+    void testSolvingAnIssueClosesIt() {
+        LiveTransactionAggregates aggregates = new LiveTransactionAggregates();
+        aggregates.append(new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, 1, false, "Issue1"));
+        assertTrue(aggregates.hasOpenComplianceIssues("Beneficiary1"));
+        assertEquals(Set.of(1), aggregates.getUnsolvedIssueIds());
+
+        aggregates.append(new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, 1, true, "Issue1"));
+
+        assertFalse(aggregates.hasOpenComplianceIssues("Sender1"));
+        assertFalse(aggregates.hasOpenComplianceIssues("Beneficiary1"));
+        assertTrue(aggregates.getUnsolvedIssueIds().isEmpty());
+        assertEquals(100.0, aggregates.getTotalTransactionAmount());
+    }
+
+    @Test
+    void testTailIngestsOnlyCompleteNewLines() throws IOException {
+        Path file = tempDir.resolve("transactions.ndjson");
+        Files.writeString(file, line(1, 100.0) + "\n" + line(2, 150.0).substring(0, 20));
+        TransactionDataReader reader = new TransactionDataReader();
+        LiveTransactionAggregates aggregates = new LiveTransactionAggregates();
+
+        assertEquals(1, aggregates.tail(reader, file.toString()));
+        assertEquals(100.0, aggregates.getTotalTransactionAmount());
+
+        Files.writeString(file, line(2, 150.0).substring(20) + "\n", StandardOpenOption.APPEND);
+
+        assertEquals(1, aggregates.tail(reader, file.toString()));
+        assertEquals(0, aggregates.tail(reader, file.toString()));
+        assertEquals(250.0, aggregates.getTotalTransactionAmount());
+    }
+
+    @Test
+    void testTailSkipsMalformedLinesWithoutReingesting() throws IOException {
+        Path file = tempDir.resolve("transactions.ndjson");
+        Files.writeString(file, line(1, 100.0) + "\n");
+        InMemoryMetricsRegistry metrics = new InMemoryMetricsRegistry();
+        TransactionDataReader reader = new TransactionDataReader(metrics);
+        LiveTransactionAggregates aggregates = new LiveTransactionAggregates();
+        assertEquals(1, aggregates.tail(reader, file.toString()));
+
+        Files.writeString(file, line(2, 150.0) + "\n{\"mtn\": oops}\n" + line(3, 50.0) + "\n", StandardOpenOption.APPEND);
+
+        assertEquals(2, aggregates.tail(reader, file.toString()));
+        assertEquals(0, aggregates.tail(reader, file.toString()));
+        assertEquals(300.0, aggregates.getTotalTransactionAmount());
+        assertEquals(1, metrics.snapshot().getCounter("reader.malformedLines"));
+    }
+
+    private static String line(int mtn, double amount) {
+        return "{\"mtn\": " + mtn + ", \"amount\": " + amount + ", \"senderFullName\": \"Sender" + mtn + "\", \"senderAge\": 25, "
+                + "\"beneficiaryFullName\": \"Beneficiary" + mtn + "\", \"beneficiaryAge\": 30, \"issueId\": null, \"issueSolved\": false, \"issueMessage\": null}";
+    }
+}
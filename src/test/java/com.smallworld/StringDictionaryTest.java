@@ -0,0 +1,27 @@
+package com.smallworld;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringDictionaryTest {
+
+    @Test
+    void testInternAndIdResolveTheSameEntries() {
+        StringDictionary dictionary = new StringDictionary();
+        char[] buffer = new char[64];
+        for (int i = 0; i < 10_000; i++) {
+            String name = "Client " + i;
+            name.getChars(0, name.length(), buffer, 3);
+            String interned = dictionary.intern(buffer, 3, name.length());
+
+            assertEquals(name, interned);
+            assertSame(interned, dictionary.intern(buffer, 3, name.length()));
+            assertEquals(i, dictionary.id(name));
+        }
+
+        assertEquals(10_000, dictionary.size());
+        assertEquals("Client 42", dictionary.get(dictionary.find("Client 42")));
+        assertEquals(-1, dictionary.find("Unknown"));
+        assertEquals(10_000, dictionary.toArray().length);
+    }
+}
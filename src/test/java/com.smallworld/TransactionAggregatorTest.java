@@ -0,0 +1,103 @@
+package com.smallworld;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+class TransactionAggregatorTest {
+
+    @Test
+    void testParallelReportMatchesSequentialReport() {
+        TransactionColumnStore store = TransactionColumnStore.of(randomTransactions(50_000, 42));
+        TransactionIndexes indexes = TransactionIndexes.of(store);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            TransactionReport sequential = TransactionAggregator.aggregate(store, indexes, 10);
+            TransactionReport parallel = TransactionAggregator.aggregate(store, indexes, 10, pool);
+
+            assertEquals(sequential.getTotalAmount(), parallel.getTotalAmount());
+            assertEquals(sequential.getMaxAmount(), parallel.getMaxAmount());
+            assertEquals(sequential.getTotalAmountsBySender(), parallel.getTotalAmountsBySender());
+            assertEquals(sequential.getClients(), parallel.getClients());
+            assertEquals(sequential.getClientsWithOpenIssues(), parallel.getClientsWithOpenIssues());
+            assertEquals(sequential.getUnsolvedIssueIds(), parallel.getUnsolvedIssueIds());
+            assertEquals(sequential.getSolvedIssueMessages(), parallel.getSolvedIssueMessages());
+            assertEquals(sequential.getTopSender(), parallel.getTopSender());
+            assertEquals(mtns(sequential.getTopTransactionsByAmount()), mtns(parallel.getTopTransactionsByAmount()));
+            assertEquals(sequential.getTransactionsByBeneficiaryName().keySet(), parallel.getTransactionsByBeneficiaryName().keySet());
+            sequential.getTransactionsByBeneficiaryName().forEach((name, transactions) ->
+                    assertEquals(mtns(transactions), mtns(parallel.getTransactionsByBeneficiaryName().get(name))));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testExactSumDoesNotDependOnOrder() {
+        ExactSum forward = new ExactSum();
+        ExactSum backward = new ExactSum();
+        double[] values = {1e16, 1.0, -1e16, 0.1, 0.2, 0.3, 1e-3};
+        for (int i = 0; i < values.length; i++) {
+            forward.add(values[i]);
+            backward.add(values[values.length - 1 - i]);
+        }
+
+        assertEquals(1.601, forward.value());
+        assertEquals(forward.value(), backward.value());
+    }
+
+    @Test
+    void testMergedTopKMatchesSingleSelection() {
+        Random random = new Random(7);
+        int[] values = new int[10_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(1_000);
+        }
+        TopK.IntOrder order = (left, right) -> {
+            int result = Integer.compare(values[right], values[left]);
+            return result != 0 ? result : Integer.compare(left, right);
+        };
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            int[] single = new TopK(25, order).offerRange(0, values.length).toSortedArray();
+            int[] merged = new TopK(25, order).offerRange(0, 3_000).merge(new TopK(25, order).offerRange(3_000, values.length)).toSortedArray();
+
+            assertArrayEquals(single, merged);
+            assertArrayEquals(single, TopK.select(25, order, 0, values.length, pool).toSortedArray());
+            for (int i = 1; i < single.length; i++) {
+                assertTrue(order.compare(single[i - 1], single[i]) < 0);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static List<Transaction> randomTransactions(int count, long seed) {
+        Random random = new Random(seed);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int mtn = 0; mtn < count; mtn++) {
+            double amount = Math.round(random.nextDouble() * 100_000) / 100.0;
+            String sender = "Sender" + random.nextInt(500);
+            String beneficiary = "Beneficiary" + random.nextInt(500);
+            int issues = random.nextInt(3);
+            if (issues == 0) {
+                transactions.add(new Transaction(mtn, amount, sender, 30, beneficiary, 40, null, false, null));
+            }
+            for (int issue = 0; issue < issues; issue++) {
+                boolean solved = random.nextBoolean();
+                transactions.add(new Transaction(mtn, amount, sender, 30, beneficiary, 40, mtn * 3 + issue, solved, "Issue" + mtn));
+            }
+        }
+        return transactions;
+    }
+
+    private static List<Integer> mtns(List<Transaction> transactions) {
+        List<Integer> mtns = new ArrayList<>();
+        transactions.forEach(transaction -> mtns.add(transaction.getMtn()));
+        return mtns;
+    }
+}
@@ -0,0 +1,84 @@
+package com.smallworld;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+class TransactionColumnStoreTest {
+
+    @Test
+    void testRepeatedMtnIsStoredOnceWithAllIssues() {
+        TransactionColumnStore store = TransactionColumnStore.of(Arrays.asList(
+                new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, 11, false, "Issue11"),
+                new Transaction(2, 150.0, "Sender2", 28, "Beneficiary2", 35, null, false, null),
+                new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, 12, true, "Issue12")
+        ));
+
+        assertEquals(2, store.size());
+        assertEquals(1, store.getMtn(0));
+        assertEquals(2, store.getMtn(1));
+        assertEquals(2, store.getIssueEnd(0) - store.getIssueStart(0));
+        assertEquals(11, store.getIssueId(store.getIssueStart(0)));
+        assertEquals(12, store.getIssueId(store.getIssueStart(0) + 1));
+        assertTrue(store.isIssueSolved(store.getIssueStart(0) + 1));
+        assertEquals(0, store.getIssueEnd(1) - store.getIssueStart(1));
+    }
+
+    @Test
+    void testNamesAreDictionaryEncoded() {
+        TransactionColumnStore store = TransactionColumnStore.of(Arrays.asList(
+                new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, null, false, null),
+                new Transaction(2, 150.0, "Beneficiary1", 30, "Sender1", 25, null, false, null)
+        ));
+
+        assertEquals(2, store.getNameCount());
+        assertEquals(store.getSenderId(0), store.getBeneficiaryId(1));
+        assertEquals(store.getBeneficiaryId(0), store.getSenderId(1));
+        assertEquals("Sender1", store.getName(store.getNameId("Sender1")));
+        assertEquals(TransactionColumnStore.NO_NAME, store.getNameId("Unknown"));
+    }
+
+    @Test
+    void testAsListGroupsNonContiguousRepeatedMtns() {
+        TransactionColumnStore store = TransactionColumnStore.of(Arrays.asList(
+                new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, 11, true, "Issue11"),
+                new Transaction(2, 150.0, "Sender2", 28, "Beneficiary2", 35, 21, true, "Issue21"),
+                new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, 12, true, "Issue12"),
+                new Transaction(3, 50.0, "Sender1", 25, "Beneficiary2", 35, null, true, "Dropped"),
+                new Transaction(3, 50.0, "Sender1", 25, "Beneficiary2", 35, null, false, null)
+        ));
+
+        List<Transaction> transactions = store.asList();
+
+        // The second issue of MTN 1 moves up next to the first one; MTN 3 keeps its first row without its message
+        assertEquals(List.of(1, 1, 2, 3), transactions.stream().map(Transaction::getMtn).collect(Collectors.toList()));
+        assertEquals(12, transactions.get(1).getIssueId());
+        assertTrue(transactions.get(3).isIssueSolved());
+        assertNull(transactions.get(3).getIssueMessage());
+        assertEquals(List.of("Issue11", "Issue12", "Issue21"), ComplianceIssueIndex.of(store).getSolvedIssueMessages());
+    }
+
+    @Test
+    void testAsListRestoresOneTransactionPerIssue() {
+        TransactionColumnStore store = TransactionColumnStore.of(Arrays.asList(
+                new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, 11, false, "Issue11"),
+                new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, 12, true, "Issue12"),
+                new Transaction(2, 150.0, "Sender2", 28, "Beneficiary2", 35, null, true, null)
+        ));
+
+        List<Transaction> transactions = store.asList();
+
+        assertEquals(3, transactions.size());
+        assertEquals(11, transactions.get(0).getIssueId());
+        assertEquals(12, transactions.get(1).getIssueId());
+        assertEquals("Issue12", transactions.get(1).getIssueMessage());
+        assertEquals(2, transactions.get(2).getMtn());
+        assertNull(transactions.get(2).getIssueId());
+        assertTrue(transactions.get(2).isIssueSolved());
+        assertTrue(TransactionColumnStore.merge(List.of(store)).toTransaction(1).isIssueSolved());
+        assertSame(store, TransactionColumnStore.of(transactions));
+    }
+}
@@ -8,6 +8,12 @@ import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 class TransactionDataFetcherTest {
     private TransactionDataFetcher dataFetcher;
@@ -164,4 +170,262 @@ class TransactionDataFetcherTest {
         assertEquals("Sender1", dataFetcher.getTopSender().orElse(null));
     }
 
-}
\ No newline at end of file
+    @Test
+    void testGetTotalTransactionAmountStreaming() throws IOException {
+        when(mockReader.streamTransactions(TransactionDataFetcher.DEFAULT_FILE_PATH)).thenReturn(Stream.of(
+                new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, 1, false, "Issue1"),
+                new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, 2, true, "Issue2"),
+                new Transaction(2, 150.0, "Sender2", 28, "Beneficiary2", 35, null, false, null)
+        ));
+
+        assertEquals(250.0, dataFetcher.getTotalTransactionAmountStreaming());
+    }
+
+    @Test
+    void testGetMaxTransactionAmountStreaming() throws IOException {
+        when(mockReader.streamTransactions(TransactionDataFetcher.DEFAULT_FILE_PATH)).thenReturn(Stream.of(
+                new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, null, false, null),
+                new Transaction(2, 150.0, "Sender2", 28, "Beneficiary2", 35, null, false, null)
+        ));
+
+        assertEquals(150.0, dataFetcher.getMaxTransactionAmountStreaming());
+    }
+
+    @Test
+    void testGetReportIsReusedForSameSnapshot() {
+        List<Transaction> mockTransactions = List.of(
+                new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, null, false, null)
+        );
+        when(dataFetcher.getAll()).thenReturn(mockTransactions);
+
+        TransactionReport first = dataFetcher.getReport();
+        assertSame(first, dataFetcher.getReport());
+
+        when(dataFetcher.getAll()).thenReturn(List.of(
+                new Transaction(2, 150.0, "Sender2", 28, "Beneficiary2", 35, null, false, null)
+        ));
+        assertNotSame(first, dataFetcher.getReport());
+        assertEquals(150.0, dataFetcher.getTotalTransactionAmount());
+    }
+
+    @Test
+    void testConcurrentQueriesShareOneView() throws Exception {
+        when(dataFetcher.getAll()).thenReturn(List.of(
+                new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, null, false, null)
+        ));
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CyclicBarrier barrier = new CyclicBarrier(threads);
+            List<Future<TransactionReport>> reports = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                reports.add(executor.submit(() -> {
+                    barrier.await();
+                    return dataFetcher.getReport();
+                }));
+            }
+            TransactionReport first = reports.get(0).get();
+            for (Future<TransactionReport> report : reports) {
+                assertSame(first, report.get());
+            }
+            assertEquals(dataFetcher.getSnapshotVersion(), dataFetcher.getSnapshotVersion());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testGetTopSenderCountsEachMtnOnce() {
+        List<Transaction> mockTransactions = Arrays.asList(
+                new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, 1, false, "Issue1"),
+                new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, 2, false, "Issue2"),
+                new Transaction(2, 150.0, "Sender2", 28, "Beneficiary2", 35, null, false, null)
+        );
+        when(dataFetcher.getAll()).thenReturn(mockTransactions);
+
+        assertEquals("Sender2", dataFetcher.getTopSender().orElse(null));
+    }
+
+    @Test
+    void testGetTopSenderBreaksTiesByName() {
+        when(dataFetcher.getAll()).thenReturn(Arrays.asList(
+                new Transaction(1, 150.0, "Sender2", 28, "Beneficiary2", 35, null, false, null),
+                new Transaction(2, 100.0, "Sender1", 25, "Beneficiary1", 30, null, false, null),
+                new Transaction(3, 50.0, "Sender1", 25, "Beneficiary1", 30, null, false, null)
+        ));
+
+        assertEquals("Sender1", dataFetcher.getTopSender().orElse(null));
+    }
+
+    @Test
+    void testGetTopSenderOnSampleFileCountsEachMtnOnce() throws IOException {
+        TransactionDataFetcher fetcher = new TransactionDataFetcher(new TransactionDataReader());
+
+        assertEquals("Arthur Shelby", fetcher.getTopSender().orElse(null));
+    }
+
+    @Test
+    void testGetTransactionsSentByAndReceivedBy() {
+        List<Transaction> mockTransactions = Arrays.asList(
+                new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, null, false, null),
+                new Transaction(2, 150.0, "Sender2", 28, "Beneficiary1", 35, null, false, null),
+                new Transaction(3, 200.0, "Sender1", 25, "Beneficiary2", 30, null, false, null)
+        );
+        when(dataFetcher.getAll()).thenReturn(mockTransactions);
+
+        List<Transaction> sent = dataFetcher.getTransactionsSentBy("Sender1");
+        List<Transaction> received = dataFetcher.getTransactionsReceivedBy("Beneficiary1");
+
+        assertEquals(Arrays.asList(1, 3), Arrays.asList(sent.get(0).getMtn(), sent.get(1).getMtn()));
+        assertEquals(Arrays.asList(1, 2), Arrays.asList(received.get(0).getMtn(), received.get(1).getMtn()));
+        assertTrue(dataFetcher.getTransactionsSentBy("Unknown").isEmpty());
+    }
+
+    @Test
+    void testCountOpenComplianceIssues() {
+        List<Transaction> mockTransactions = Arrays.asList(
+                new Transaction(1, 100.0, "Aunt Polly", 25, "Beneficiary1", 30, 1, false, "Issue1"),
+                new Transaction(1, 100.0, "Aunt Polly", 25, "Beneficiary1", 30, 2, false, "Issue2"),
+                new Transaction(2, 150.0, "Sender2", 28, "Aunt Polly", 35, 3, false, "Issue3"),
+                new Transaction(3, 200.0, "Aunt Polly", 25, "Beneficiary3", 30, 4, true, "Issue4")
+        );
+        when(dataFetcher.getAll()).thenReturn(mockTransactions);
+
+        assertEquals(3, dataFetcher.countOpenComplianceIssues("Aunt Polly"));
+        assertEquals(0, dataFetcher.countOpenComplianceIssues("Beneficiary3"));
+        assertFalse(dataFetcher.hasOpenComplianceIssues("Unknown"));
+    }
+
+    @Test
+    void testComplianceIssueIndexQueries() {
+        List<Transaction> mockTransactions = Arrays.asList(
+                new Transaction(1, 100.0, "Aunt Polly", 25, "Beneficiary1", 30, 1, false, "Issue1"),
+                new Transaction(1, 100.0, "Aunt Polly", 25, "Beneficiary1", 30, 2, true, "Issue2"),
+                new Transaction(2, 150.0, "Sender2", 28, "Aunt Polly", 35, 3, false, "Issue3"),
+                new Transaction(3, 200.0, "Aunt Polly", 25, "Aunt Polly", 25, 4, false, "Issue4"),
+                new Transaction(4, 50.0, "Sender2", 28, "Beneficiary1", 30, null, true, null)
+        );
+        when(dataFetcher.getAll()).thenReturn(mockTransactions);
+
+        assertEquals(2, dataFetcher.countOpenComplianceIssuesSentBy("Aunt Polly"));
+        assertEquals(3, dataFetcher.countOpenComplianceIssues("Aunt Polly"));
+        assertEquals(1, dataFetcher.countOpenComplianceIssuesSentBy("Sender2"));
+        assertEquals(Arrays.asList(new ComplianceIssue(1, 1, false, "Issue1"), new ComplianceIssue(2, 1, true, "Issue2")),
+                dataFetcher.getComplianceIssuesForMtn(1));
+        assertTrue(dataFetcher.getComplianceIssuesForMtn(4).isEmpty());
+        assertTrue(dataFetcher.getComplianceIssuesForMtn(99).isEmpty());
+        assertEquals(Arrays.asList("Aunt Polly", "Beneficiary1", "Sender2"), dataFetcher.getClientsWithMoreOpenIssuesThan(0));
+        assertEquals(List.of("Aunt Polly"), dataFetcher.getClientsWithMoreOpenIssuesThan(1));
+
+        ComplianceIssueIndex index = dataFetcher.getComplianceIssueIndex();
+        assertEquals(List.of(new ComplianceIssue(3, 2, false, "Issue3")), index.getIssues(3));
+        assertTrue(index.getIssues(5).isEmpty());
+        assertTrue(index.hasOpenIssues(3));
+        assertFalse(index.hasOpenIssues(4));
+        assertEquals(3, index.getTransactionsWithOpenIssuesCount());
+        assertEquals(Arrays.asList(1, 3, 4), index.getOpenIssues("Aunt Polly").stream().map(ComplianceIssue::getIssueId).collect(Collectors.toList()));
+        assertEquals(dataFetcher.getUnsolvedIssueIds(), index.getUnsolvedIssueIds());
+        assertEquals(dataFetcher.getAllSolvedIssueMessages(), index.getSolvedIssueMessages());
+        assertSame(index, dataFetcher.getComplianceIssueIndex());
+    }
+
+    @Test
+    void testGetTopTransactionsAndSendersByK() {
+        List<Transaction> mockTransactions = Arrays.asList(
+                new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, null, false, null),
+                new Transaction(2, 300.0, "Sender2", 28, "Beneficiary2", 35, null, false, null),
+                new Transaction(3, 100.0, "Sender3", 25, "Beneficiary3", 30, null, false, null),
+                new Transaction(4, 50.0, "Sender4", 28, "Beneficiary4", 35, null, false, null),
+                new Transaction(5, 200.0, "Sender1", 25, "Beneficiary1", 30, null, false, null)
+        );
+        when(dataFetcher.getAll()).thenReturn(mockTransactions);
+
+        List<Transaction> top = dataFetcher.getTopTransactionsByAmount(4);
+        List<Integer> mtns = new ArrayList<>();
+        top.forEach(transaction -> mtns.add(transaction.getMtn()));
+
+        assertEquals(Arrays.asList(2, 5, 1, 3), mtns);
+        assertEquals(2, dataFetcher.getTopTransactionsByAmount(2).size());
+        assertEquals(Arrays.asList("Sender1", "Sender2", "Sender3"), dataFetcher.getTopSenders(3));
+        assertEquals(4, dataFetcher.getTopSenders(10).size());
+        assertEquals(5, dataFetcher.getTopTransactionsByAmount(Integer.MAX_VALUE).size());
+        assertEquals(4, dataFetcher.getTopSenders(Integer.MAX_VALUE).size());
+        assertThrows(IllegalArgumentException.class, () -> dataFetcher.getTopTransactionsByAmount(-1));
+        assertThrows(IllegalArgumentException.class, () -> dataFetcher.getTopSenders(-1));
+    }
+
+    @Test
+    void testSelectAppliesEveryPredicate() {
+        List<Transaction> mockTransactions = Arrays.asList(
+                new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, 1, true, "Issue1"),
+                new Transaction(1, 100.0, "Sender1", 25, "Beneficiary1", 30, 2, false, "Issue2"),
+                new Transaction(2, 300.0, "Sender2", 40, "Beneficiary1", 35, 3, true, "Issue3"),
+                new Transaction(3, 200.0, "Sender1", 25, "Beneficiary2", 60, null, false, null),
+                new Transaction(4, 50.0, "Sender2", 40, "Beneficiary2", 35, null, false, null)
+        );
+        when(dataFetcher.getAll()).thenReturn(mockTransactions);
+
+        TransactionSelection bySender = dataFetcher.select(TransactionFilter.builder().sentBy("Sender1").amountAtLeast(150.0).build());
+        TransactionSelection byAge = dataFetcher.select(TransactionFilter.builder().senderAgeBetween(30, 50).beneficiaryAgeBetween(30, 35).build());
+        TransactionSelection open = dataFetcher.select(TransactionFilter.builder().issueState(TransactionFilter.IssueState.OPEN).build());
+        TransactionSelection solved = dataFetcher.select(TransactionFilter.builder().issueState(TransactionFilter.IssueState.SOLVED).receivedBy("Beneficiary1").build());
+
+        assertEquals(Collections.singletonList(3), mtnsOf(bySender.getTransactions()));
+        assertEquals(Arrays.asList(2, 4), mtnsOf(byAge.getTransactions()));
+        assertEquals(350.0, byAge.getTotalAmount());
+        assertEquals(300.0, byAge.getMaxAmount());
+        assertEquals(Collections.singletonList(1), mtnsOf(open.getTransactions()));
+        assertEquals(Set.of(2), open.getReport().getUnsolvedIssueIds());
+        assertEquals(Collections.singletonList(2), mtnsOf(solved.getTransactions()));
+        assertEquals(0, dataFetcher.select(TransactionFilter.builder().sentBy("Unknown").build()).size());
+        assertEquals(4, dataFetcher.select(TransactionFilter.ALL).size());
+    }
+
+    @Test
+    void testSelectChainsAmountBounds() {
+        List<Transaction> mockTransactions = Arrays.asList(
+                new Transaction(1, 50.0, "Sender1", 25, "Beneficiary1", 30, null, false, null),
+                new Transaction(2, 150.0, "Sender1", 25, "Beneficiary1", 30, null, false, null),
+                new Transaction(3, 600.0, "Sender2", 40, "Beneficiary2", 35, null, false, null)
+        );
+        when(dataFetcher.getAll()).thenReturn(mockTransactions);
+
+        TransactionFilter chained = TransactionFilter.builder().amountAtLeast(100.0).amountAtMost(500.0).build();
+
+        assertEquals(Collections.singletonList(2), mtnsOf(dataFetcher.select(chained).getTransactions()));
+        assertEquals(TransactionFilter.builder().amountBetween(100.0, 500.0).build(), chained);
+    }
+
+    @Test
+    void testSelectSkipsBlocksOutsideTheRanges() throws IOException {
+        List<Transaction> mockTransactions = new ArrayList<>();
+        for (int mtn = 1; mtn <= 10_000; mtn++) {
+            mockTransactions.add(new Transaction(mtn, mtn, "Sender" + mtn % 7, 20 + mtn % 50, "Beneficiary" + mtn % 11, 30, null, false, null));
+        }
+        InMemoryMetricsRegistry metrics = new InMemoryMetricsRegistry();
+        TransactionDataFetcher fetcher = new TransactionDataFetcher(mockReader, "transactions.json", null, metrics);
+        when(mockReader.readTransactionsFromFile("transactions.json")).thenReturn(mockTransactions);
+
+        TransactionFilter filter = TransactionFilter.builder().amountBetween(2_500.0, 3_500.0).senderAgeBetween(30, 39).build();
+        TransactionSelection selection = fetcher.select(filter);
+        List<Integer> expected = new ArrayList<>();
+        for (Transaction transaction : mockTransactions) {
+            if (transaction.getAmount() >= 2_500.0 && transaction.getAmount() <= 3_500.0
+                    && transaction.getSenderAge() >= 30 && transaction.getSenderAge() <= 39) {
+                expected.add(transaction.getMtn());
+            }
+        }
+
+        assertEquals(expected, mtnsOf(selection.getTransactions()));
+        assertEquals(3, selection.getTopTransactionsByAmount(3).size());
+        assertEquals(3_469, selection.getTopTransactionsByAmount(1).get(0).getMtn());
+        assertTrue(metrics.snapshot().getCounter("fetcher.select.blocksSkipped") >= 7);
+        assertTrue(metrics.snapshot().getCounter("fetcher.select.rowsScanned") <= 3 * TransactionZoneMaps.BLOCK_SIZE);
+    }
+
+    private static List<Integer> mtnsOf(List<Transaction> transactions) {
+        List<Integer> mtns = new ArrayList<>();
+        transactions.forEach(transaction -> mtns.add(transaction.getMtn()));
+        return mtns;
+    }
+}
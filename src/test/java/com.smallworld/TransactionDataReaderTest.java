@@ -0,0 +1,289 @@
+package com.smallworld;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+class TransactionDataReaderTest {
+    private static final String ONE_TRANSACTION = "[{\"mtn\": 1, \"amount\": 100.0, \"senderFullName\": \"Sender1\", \"senderAge\": 25, "
+            + "\"beneficiaryFullName\": \"Beneficiary1\", \"beneficiaryAge\": 30, \"issueId\": null, \"issueSolved\": false, \"issueMessage\": null}]";
+    private static final String TWO_TRANSACTIONS = "[{\"mtn\": 1, \"amount\": 100.0, \"senderFullName\": \"Sender1\", \"senderAge\": 25, "
+            + "\"beneficiaryFullName\": \"Beneficiary1\", \"beneficiaryAge\": 30, \"issueId\": null, \"issueSolved\": false, \"issueMessage\": null}, "
+            + "{\"mtn\": 2, \"amount\": 150.0, \"senderFullName\": \"Sender2\", \"senderAge\": 28, "
+            + "\"beneficiaryFullName\": \"Beneficiary2\", \"beneficiaryAge\": 35, \"issueId\": 7, \"issueSolved\": true, \"issueMessage\": \"Issue7\"}]";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testReadTransactionsFromFileParsesOnce() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("transactions.json"), ONE_TRANSACTION);
+        TransactionDataReader reader = new TransactionDataReader();
+
+        List<Transaction> first = reader.readTransactionsFromFile(file.toString());
+        List<Transaction> second = reader.readTransactionsFromFile(file.toString());
+
+        assertEquals(1, first.size());
+        assertSame(first, second);
+    }
+
+    @Test
+    void testSnapshotIsReloadedWhenFileChanges() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("transactions.json"), ONE_TRANSACTION);
+        TransactionDataReader reader = new TransactionDataReader();
+        TransactionSnapshot before = reader.getSnapshot(file.toString());
+
+        Files.writeString(file, TWO_TRANSACTIONS);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(before.getLastModifiedTime().toMillis() + 1000));
+        TransactionSnapshot after = reader.getSnapshot(file.toString());
+
+        assertEquals(1, before.getTransactions().size());
+        assertEquals(2, after.getTransactions().size());
+        assertTrue(after.getVersion() > before.getVersion());
+    }
+
+    @Test
+    void testRefreshReloadsUnchangedFile() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("transactions.json"), ONE_TRANSACTION);
+        TransactionDataReader reader = new TransactionDataReader();
+        TransactionSnapshot before = reader.getSnapshot(file.toString());
+
+        TransactionSnapshot after = reader.refresh(file.toString());
+
+        assertNotSame(before, after);
+        assertTrue(after.getVersion() > before.getVersion());
+        assertSame(after, reader.getSnapshot(file.toString()));
+    }
+
+    @Test
+    void testMissingFileReturnsEmptyList() {
+        TransactionDataReader reader = new TransactionDataReader();
+
+        assertTrue(reader.readTransactionsFromFile(tempDir.resolve("missing.json").toString()).isEmpty());
+        assertNull(reader.getSnapshot(tempDir.resolve("missing.json").toString()));
+    }
+
+    @Test
+    void testForEachTransactionStreamsArray() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("transactions.json"), TWO_TRANSACTIONS);
+        TransactionDataReader reader = new TransactionDataReader();
+        List<Integer> mtns = new ArrayList<>();
+
+        reader.forEachTransaction(file.toString(), transaction -> mtns.add(transaction.getMtn()));
+
+        assertEquals(List.of(1, 2), mtns);
+    }
+
+    @Test
+    void testStreamTransactionsReadsTopLevelObjects() throws IOException {
+        String ndjson = TWO_TRANSACTIONS.substring(1, TWO_TRANSACTIONS.length() - 1).replace("}, {", "}\n{");
+        Path file = Files.writeString(tempDir.resolve("transactions.ndjson"), ndjson);
+        TransactionDataReader reader = new TransactionDataReader();
+
+        try (Stream<Transaction> stream = reader.streamTransactions(file.toString())) {
+            List<Transaction> transactions = stream.collect(Collectors.toList());
+
+            assertEquals(2, transactions.size());
+            assertEquals("Issue7", transactions.get(1).getIssueMessage());
+        }
+    }
+
+    @Test
+    void testBinarySnapshotIsMappedWithTheSameContent() throws IOException {
+        Path json = Files.copy(Path.of(TransactionDataFetcher.DEFAULT_FILE_PATH), tempDir.resolve("transactions.json"));
+        Path binary = tempDir.resolve("transactions.snapshot");
+        TransactionDataReader reader = new TransactionDataReader();
+        reader.writeBinarySnapshot(json.toString(), binary.toString());
+
+        assertTrue(TransactionSnapshotFile.isSnapshot(binary));
+        assertFalse(TransactionSnapshotFile.isSnapshot(json));
+        List<Transaction> parsed = new ObjectMapper().readValue(json.toFile(), new TypeReference<List<Transaction>>() {});
+        assertEquals(toStrings(parsed), toStrings(reader.readTransactionsFromFile(json.toString())));
+        assertEquals(toStrings(parsed), toStrings(new TransactionDataReader().readTransactionsFromFile(binary.toString())));
+
+        TransactionDataFetcher fromJson = new TransactionDataFetcher(reader, json.toString());
+        TransactionDataFetcher fromBinary = new TransactionDataFetcher(new TransactionDataReader(), binary.toString());
+        assertEquals(fromJson.getTotalTransactionAmount(), fromBinary.getTotalTransactionAmount());
+        assertEquals(fromJson.getUnsolvedIssueIds(), fromBinary.getUnsolvedIssueIds());
+        assertEquals(fromJson.getAllSolvedIssueMessages(), fromBinary.getAllSolvedIssueMessages());
+        assertEquals(fromJson.getTopSender(), fromBinary.getTopSender());
+    }
+
+    @Test
+    void testShardsOfADirectoryAreMergedByMtn() throws IOException {
+        Path shards = Files.createDirectory(tempDir.resolve("shards"));
+        Files.writeString(shards.resolve("part-1.json"), TWO_TRANSACTIONS);
+        Files.writeString(shards.resolve("part-2.json"), "[{\"mtn\": 2, \"amount\": 150.0, \"senderFullName\": \"Sender2\", \"senderAge\": 28, "
+                + "\"beneficiaryFullName\": \"Beneficiary2\", \"beneficiaryAge\": 35, \"issueId\": 7, \"issueSolved\": false, \"issueMessage\": \"Reopened\"}, "
+                + "{\"mtn\": 2, \"amount\": 150.0, \"senderFullName\": \"Sender2\", \"senderAge\": 28, "
+                + "\"beneficiaryFullName\": \"Beneficiary2\", \"beneficiaryAge\": 35, \"issueId\": 8, \"issueSolved\": true, \"issueMessage\": \"Issue8\"}, "
+                + "{\"mtn\": 3, \"amount\": 50.0, \"senderFullName\": \"Sender1\", \"senderAge\": 25, "
+                + "\"beneficiaryFullName\": \"Beneficiary3\", \"beneficiaryAge\": 40, \"issueId\": null, \"issueSolved\": false, \"issueMessage\": null}]");
+        Files.writeString(shards.resolve(".hidden.json"), ONE_TRANSACTION);
+        TransactionDataReader reader = new TransactionDataReader(MetricsRegistry.NOOP, 2);
+
+        TransactionSnapshot snapshot = reader.getSnapshot(shards.toString());
+        TransactionDataFetcher fetcher = new TransactionDataFetcher(reader, shards.toString());
+
+        assertEquals(2, snapshot.getShards().size());
+        assertEquals(3, snapshot.getStore().size());
+        assertEquals(300.0, fetcher.getTotalTransactionAmount());
+        assertEquals(Set.of(7), fetcher.getUnsolvedIssueIds());
+        assertEquals(List.of("Issue8"), fetcher.getAllSolvedIssueMessages());
+        assertSame(snapshot, reader.getSnapshot(shards.toString()));
+        try (Stream<Transaction> stream = reader.streamTransactions(shards.toString())) {
+            assertEquals(5, stream.count());
+        }
+    }
+
+    @Test
+    void testGlobPatternReloadsOnlyChangedShards() throws IOException {
+        Path first = Files.writeString(tempDir.resolve("transactions-1.json"), ONE_TRANSACTION);
+        Path second = Files.writeString(tempDir.resolve("transactions-2.json"), TWO_TRANSACTIONS);
+        Files.writeString(tempDir.resolve("other.json"), ONE_TRANSACTION);
+        String pattern = tempDir.resolve("transactions-*.json").toString();
+        TransactionDataReader reader = new TransactionDataReader(MetricsRegistry.NOOP, 2, Duration.ZERO);
+
+        TransactionSnapshot before = reader.getSnapshot(pattern);
+        Files.writeString(second, ONE_TRANSACTION);
+        Files.setLastModifiedTime(second, FileTime.fromMillis(Files.getLastModifiedTime(second).toMillis() + 10_000));
+        TransactionSnapshot after = reader.getSnapshot(pattern);
+
+        assertEquals(2, before.getStore().size());
+        assertEquals(1, after.getStore().size());
+        assertTrue(after.getVersion() > before.getVersion());
+        assertSame(reader.getSnapshot(first.toString()), after.getShards().get(0));
+    }
+
+    @Test
+    void testConcurrentReadersShareOneLoad() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("transactions.json"), TWO_TRANSACTIONS);
+        InMemoryMetricsRegistry metrics = new InMemoryMetricsRegistry();
+        TransactionDataReader reader = new TransactionDataReader(metrics);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<TransactionSnapshot>> snapshots = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                snapshots.add(executor.submit(() -> reader.getSnapshot(file.toString())));
+            }
+            for (Future<TransactionSnapshot> snapshot : snapshots) {
+                assertSame(snapshots.get(0).get(), snapshot.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, metrics.snapshot().getLatency("reader.load").getCount());
+    }
+
+    @Test
+    void testShardsAreCheckedAtMostOncePerInterval() throws IOException {
+        Path shards = Files.createDirectory(tempDir.resolve("shards"));
+        Files.writeString(shards.resolve("part-1.json"), ONE_TRANSACTION);
+        TransactionDataReader reader = new TransactionDataReader(MetricsRegistry.NOOP, 2, Duration.ofHours(1));
+
+        TransactionSnapshot before = reader.getSnapshot(shards.toString());
+        Files.writeString(shards.resolve("part-2.json"), TWO_TRANSACTIONS);
+
+        assertSame(before, reader.getSnapshot(shards.toString()));
+        assertEquals(2, reader.refresh(shards.toString()).getShards().size());
+    }
+
+    @Test
+    void testFileNameWithGlobCharactersIsReadAsAFile() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("transactions[2024].json"), TWO_TRANSACTIONS);
+        TransactionDataReader reader = new TransactionDataReader();
+
+        TransactionSnapshot snapshot = reader.getSnapshot(file.toString());
+
+        assertEquals(2, snapshot.getTransactions().size());
+        assertTrue(snapshot.getShards().isEmpty());
+    }
+
+    @Test
+    void testParsedNamesAndMessagesAreInterned() throws IOException {
+        String json = "[{\"mtn\": 1, \"amount\": 100.0, \"senderFullName\": \"Sender1\", \"senderAge\": 25, "
+                + "\"beneficiaryFullName\": \"Sender2\", \"beneficiaryAge\": 30, \"issueId\": 1, \"issueSolved\": true, \"issueMessage\": \"Checked\"}, "
+                + "{\"mtn\": 2, \"amount\": 150.0, \"senderFullName\": \"Sender2\", \"senderAge\": 28, "
+                + "\"beneficiaryFullName\": \"Sender1\", \"beneficiaryAge\": 35, \"issueId\": 2, \"issueSolved\": true, \"issueMessage\": \"Checked\"}]";
+        StringDictionary names = new StringDictionary();
+        StringDictionary messages = new StringDictionary();
+        ObjectReader reader = new ObjectMapper().readerFor(new TypeReference<List<Transaction>>() {})
+                .withAttribute(InterningStringDeserializer.Dictionary.NAMES, names)
+                .withAttribute(InterningStringDeserializer.Dictionary.MESSAGES, messages);
+
+        List<Transaction> interned = reader.readValue(json);
+        List<Transaction> plain = new ObjectMapper().readValue(json, new TypeReference<List<Transaction>>() {});
+
+        assertSame(interned.get(0).getSenderFullName(), interned.get(1).getBeneficiaryFullName());
+        assertSame(interned.get(0).getIssueMessage(), interned.get(1).getIssueMessage());
+        assertEquals(2, names.size());
+        assertEquals(0, messages.find("Checked"));
+        assertNotSame(plain.get(0).getSenderFullName(), plain.get(1).getBeneficiaryFullName());
+        assertEquals(toStrings(plain), toStrings(interned));
+
+        Path file = Files.writeString(tempDir.resolve("transactions.json"), json);
+        TransactionColumnStore store = new TransactionDataReader().getSnapshot(file.toString()).getStore();
+        assertEquals(2, store.getNameCount());
+        assertEquals(1, store.getMessageCount());
+    }
+
+    @Test
+    void testNamesOnlyOnRepeatedMtnsGetNoId() throws IOException {
+        String json = "[{\"mtn\": 1, \"amount\": 100.0, \"senderFullName\": \"Sender1\", \"senderAge\": 25, "
+                + "\"beneficiaryFullName\": \"Beneficiary1\", \"beneficiaryAge\": 30, \"issueId\": 1, \"issueSolved\": false, \"issueMessage\": null}, "
+                + "{\"mtn\": 1, \"amount\": 100.0, \"senderFullName\": \"Stale sender\", \"senderAge\": 25, "
+                + "\"beneficiaryFullName\": \"Stale beneficiary\", \"beneficiaryAge\": 30, \"issueId\": 2, \"issueSolved\": false, \"issueMessage\": null}]";
+        Path file = Files.writeString(tempDir.resolve("transactions.json"), json);
+
+        TransactionColumnStore store = new TransactionDataReader().getSnapshot(file.toString()).getStore();
+
+        assertEquals(2, store.getNameCount());
+        assertEquals("Beneficiary1", store.getName(store.getBeneficiaryId(0)));
+        assertEquals(TransactionColumnStore.NO_NAME, store.getNameId("Stale sender"));
+        assertEquals(TransactionColumnStore.NO_NAME, store.getNameId("Stale beneficiary"));
+    }
+
+    @Test
+    void testAppendedLinesAreReadAcrossBufferBoundaries() throws IOException {
+        StringBuilder ndjson = new StringBuilder();
+        for (int mtn = 0; mtn < 2_000; mtn++) {
+            String message = mtn == 1_000 ? "x".repeat(200_000) : "Issue" + mtn;
+            ndjson.append("{\"mtn\": ").append(mtn).append(", \"amount\": 1.0, \"senderFullName\": \"Sender1\", \"senderAge\": 25, ")
+                    .append("\"beneficiaryFullName\": \"Beneficiary1\", \"beneficiaryAge\": 30, \"issueId\": ").append(mtn)
+                    .append(", \"issueSolved\": true, \"issueMessage\": \"").append(message).append("\"}")
+                    .append(mtn % 100 == 0 ? "\r\n \t\n" : "\n");
+        }
+        Path file = Files.writeString(tempDir.resolve("transactions.ndjson"), ndjson + "{\"mtn\": 2000");
+        List<Transaction> transactions = new ArrayList<>();
+
+        long position = new TransactionDataReader().readAppendedTransactions(file.toString(), 0, transactions::add);
+
+        assertEquals(2_000, transactions.size());
+        assertEquals(1_999, transactions.get(1_999).getMtn());
+        assertEquals(200_000, transactions.get(1_000).getIssueMessage().length());
+        assertEquals(Files.size(file) - "{\"mtn\": 2000".length(), position);
+    }
+
+    private static List<String> toStrings(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::toString).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,85 @@
+package com.smallworld;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+class TransactionQueryServiceTest {
+
+    @Test
+    void testConcurrentQueriesShareOneSnapshot() throws IOException {
+        TransactionDataFetcher fetcher = new TransactionDataFetcher(new TransactionDataReader());
+        double expected = fetcher.getTotalTransactionAmount();
+
+        try (TransactionQueryService service = new TransactionQueryService(fetcher)) {
+            List<CompletableFuture<Double>> results = new ArrayList<>();
+            for (int i = 0; i < 1_000; i++) {
+                results.add(service.submit(TransactionDataFetcher::getTotalTransactionAmount));
+            }
+
+            results.forEach(result -> assertEquals(expected, result.join()));
+        }
+    }
+
+    @Test
+    void testHttpEndpointsAnswerWithJson() throws IOException, InterruptedException {
+        TransactionDataFetcher fetcher = new TransactionDataFetcher(new TransactionDataReader());
+        try (TransactionQueryService service = new TransactionQueryService(fetcher);
+             TransactionHttpServer server = TransactionHttpServer.start(service, 0)) {
+            HttpClient client = HttpClient.newHttpClient();
+
+            HttpResponse<String> topSender = get(client, server, "/top-sender");
+            HttpResponse<String> sentBy = get(client, server, "/total-amount-sent-by?name=Aunt%20Polly");
+            HttpResponse<String> missingName = get(client, server, "/total-amount-sent-by");
+            HttpResponse<String> unknown = get(client, server, "/unknown");
+            HttpResponse<String> hugeK = get(client, server, "/top-transactions?k=2147483647");
+            HttpResponse<String> negativeK = get(client, server, "/top-transactions?k=-1");
+
+            assertEquals(200, topSender.statusCode());
+            assertEquals("\"" + fetcher.getTopSender().orElseThrow() + "\"", topSender.body());
+            assertEquals(200, sentBy.statusCode());
+            assertEquals(400, missingName.statusCode());
+            assertEquals(404, unknown.statusCode());
+            assertEquals(400, hugeK.statusCode());
+            assertEquals(400, negativeK.statusCode());
+        }
+    }
+
+    @Test
+    void testFailuresWithoutMessageAreAnswered() throws IOException, InterruptedException {
+        TransactionDataFetcher fetcher = mock(TransactionDataFetcher.class);
+        when(fetcher.getMaxTransactionAmount()).thenThrow(new IllegalArgumentException());
+        when(fetcher.getTotalTransactionAmount()).thenThrow(new NullPointerException());
+        // Fails while the result is serialized, after the query returned
+        when(fetcher.getAllSolvedIssueMessages()).thenReturn(mock(List.class));
+        try (TransactionQueryService service = new TransactionQueryService(fetcher);
+             TransactionHttpServer server = TransactionHttpServer.start(service, 0)) {
+            HttpClient client = HttpClient.newHttpClient();
+
+            HttpResponse<String> badArgument = get(client, server, "/max-amount");
+            HttpResponse<String> nullPointer = get(client, server, "/total-amount");
+            HttpResponse<String> unserializable = get(client, server, "/solved-issue-messages");
+
+            assertEquals(400, badArgument.statusCode());
+            assertTrue(badArgument.body().contains("IllegalArgumentException"), badArgument.body());
+            assertEquals(500, nullPointer.statusCode());
+            assertTrue(nullPointer.body().contains("NullPointerException"), nullPointer.body());
+            assertEquals(500, unserializable.statusCode());
+        }
+    }
+
+    private static HttpResponse<String> get(HttpClient client, TransactionHttpServer server, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}